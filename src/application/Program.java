@@ -1,24 +1,86 @@
 package application;
 
+import book.PolyglotBook;
+import book.PolyglotKeys;
+import chess.Bitboards;
 import chess.ChessException;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.Color;
+import chess.Move;
+import engine.ParallelSearch;
+import engine.TranspositionTable;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
 
 public class Program {
+    // usage: Program [--engine white|black] [--think millis] [--threads n] [--book book.bin]
     public static void main(String[] args) {
 
         Scanner sc = new Scanner(System.in);
         ChessMatch chessMatch = new ChessMatch();
         List<ChessPiece> captured = new ArrayList<>();
 
+        Color engineColor = null;
+        long thinkMillis = 1000;
+        int threads = 1;
+        String bookPath = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--engine")) {
+                engineColor = Color.valueOf(args[i + 1].toUpperCase());
+            } else if (args[i].equals("--think")) {
+                thinkMillis = Long.parseLong(args[i + 1]);
+            } else if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--book")) {
+                bookPath = args[i + 1];
+            }
+        }
+
+        PolyglotBook book = null;
+        if (engineColor != null && bookPath != null) {
+            try {
+                book = new PolyglotBook(Paths.get(bookPath), PolyglotKeys.standard());
+            } catch (IOException e) {
+                System.out.println("Opening book not used: " + e.getMessage());
+            }
+        }
+        Random random = new Random();
+        PolyglotBook.BookMoves bookMoves = new PolyglotBook.BookMoves();
+        // the table is kept between moves, results from the last search still help the next one
+        TranspositionTable table = new TranspositionTable(64);
+
+        while (!chessMatch.isCheckMate()) {
+            if (chessMatch.getCurrentPlayer() == engineColor) {
+                // the game starts from the initial setup, so known openings come from the book until it runs out
+                int move = book != null ? book.probe(chessMatch, random, bookMoves) : Move.NONE;
+                if (move == Move.NONE) {
+                    book = null;
+                    ParallelSearch search = new ParallelSearch(chessMatch, threads, table);
+                    search.setTimeLimit(thinkMillis);
+                    move = search.search();
+                }
+                if (move == Move.NONE) {
+                    break;
+                }
+
+                ChessPiece capturedPiece = chessMatch.performChessMove(chessPosition(Move.from(move)), chessPosition(Move.to(move)));
+                if (capturedPiece != null) {
+                    captured.add(capturedPiece);
+                }
+                if (chessMatch.getPromoted() != null) {
+                    chessMatch.replacePromotedPiece(UI.pieceLetter(Move.promotionType(move)));
+                }
+                continue;
+            }
 
-        while (chessMatch.isCheckMate()) {
             try {
                 UI.clearScreen();
 
@@ -61,4 +123,8 @@ public class Program {
 
         UI.printMatch(chessMatch, captured);
     }
+
+    private static ChessPosition chessPosition(int square) {
+        return new ChessPosition((char) ('a' + Bitboards.column(square)), 8 - Bitboards.row(square));
+    }
 }
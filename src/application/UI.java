@@ -4,6 +4,7 @@ import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
 import chess.Color;
+import chess.PieceType;
 
 import java.util.Arrays;
 import java.util.InputMismatchException;
@@ -66,14 +67,14 @@ public class UI {
         System.out.print("\n");
         printCapturedPieces(captured);
         System.out.println("\nTurn: " + chessMatch.getTurn());
-        if (chessMatch.isCheckMate()) {
+        if (!chessMatch.isCheckMate()) {
             System.out.println("Waiting player: " + chessMatch.getCurrentPlayer());
             if (chessMatch.getCheck()) {
                 System.out.println("CHECK!");
             }
         } else {
             System.out.println("CHECKMATE! ");
-            System.out.println("Winner: " + chessMatch.getCurrentPlayer());
+            System.out.println("Winner: " + chessMatch.getCurrentPlayer().opponent());
         }
     }
 
@@ -88,6 +89,10 @@ public class UI {
         System.out.print("  a b c d e f g h ");
     }
 
+    public static String pieceLetter(PieceType type) {
+        return "" + "PNBRQK".charAt(type.ordinal());
+    }
+
     private static void printPiece(ChessPiece piece, boolean background) {
         if (background) {
             System.out.print(ANSI_GREEN_BACKGROUND);
@@ -0,0 +1,205 @@
+package archive;
+
+import chess.ChessMatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Read side of the archive written by GameArchiveWriter. The whole file is memory-mapped in chunks of 1 GB and games
+// are read in place through the index: a move is two bytes at a known offset, so replaying needs no parsing and,
+// apart from setting up the starting position, no allocation.
+public class GameArchive implements Closeable {
+
+    public static final int RESULT_UNKNOWN = 0;
+    public static final int WHITE_WINS = 1;
+    public static final int BLACK_WINS = 2;
+    public static final int DRAW = 3;
+
+    private static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+
+    private final FileChannel channel;
+    private final ByteBuffer[] chunks;
+    private final int gameCount;
+    private final long indexOffset;
+
+    public GameArchive(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = this.channel.size();
+        this.chunks = new ByteBuffer[(int) ((size + GameArchiveWriter.CHUNK_SIZE - 1) >>> GameArchiveWriter.CHUNK_SHIFT)];
+        for (int i = 0; i < this.chunks.length; i++) {
+            long start = (long) i << GameArchiveWriter.CHUNK_SHIFT;
+            this.chunks[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(GameArchiveWriter.CHUNK_SIZE, size - start))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (size < GameArchiveWriter.HEADER_SIZE || this.getInt(0) != GameArchiveWriter.MAGIC) {
+            this.channel.close();
+            throw new IOException("Not a game archive: " + path);
+        }
+        if (this.getInt(4) != GameArchiveWriter.VERSION) {
+            this.channel.close();
+            throw new IOException("Unsupported game archive version " + this.getInt(4) + ": " + path);
+        }
+        this.gameCount = (int) this.getLong(8);
+        this.indexOffset = this.getLong(16);
+    }
+
+    public int getGameCount() {
+        return this.gameCount;
+    }
+
+    public int getPlyCount(int game) {
+        return this.getInt(this.offset(game));
+    }
+
+    // one of the RESULT_ constants
+    public int getResult(int game) {
+        return this.chunk(this.offset(game) + 4).get(this.position(this.offset(game) + 4));
+    }
+
+    public String getResultString(int game) {
+        return RESULTS[this.getResult(game)];
+    }
+
+    // 0 when unknown
+    public int getWhiteRating(int game) {
+        return this.getShort(this.offset(game) + 6);
+    }
+
+    public int getBlackRating(int game) {
+        return this.getShort(this.offset(game) + 8);
+    }
+
+    // the FEN the game started from, or null for the standard starting position
+    public String getStartFen(int game) {
+        long offset = this.offset(game);
+        if ((this.chunk(offset + 5).get(this.position(offset + 5)) & GameArchiveWriter.HAS_FEN) == 0) {
+            return null;
+        }
+        ByteBuffer chunk = this.chunk(offset);
+        byte[] fen = new byte[this.getShort(offset + 10)];
+        for (int i = 0; i < fen.length; i++) {
+            fen[i] = chunk.get(this.position(offset + 12) + i);
+        }
+        return new String(fen, StandardCharsets.US_ASCII);
+    }
+
+    // the Move played at the ply, counted from 0
+    public int getMove(int game, int ply) {
+        return this.getShort(this.movesOffset(this.offset(game)) + 2L * ply);
+    }
+
+    // plays the whole game on the match, which ends on the final position
+    public void replay(int game, ChessMatch chessMatch) {
+        this.replay(game, chessMatch, null);
+    }
+
+    public void replay(int game, ChessMatch chessMatch, PositionVisitor visitor) {
+        long offset = this.offset(game);
+        String fen = this.getStartFen(game);
+        chessMatch.load(fen != null ? fen : ChessMatch.STARTING_FEN);
+        if (visitor != null) {
+            visitor.visit(game, 0, chessMatch);
+        }
+
+        int plyCount = this.getInt(offset);
+        long moves = this.movesOffset(offset);
+        ByteBuffer chunk = this.chunk(moves);
+        int position = this.position(moves);
+        for (int ply = 0; ply < plyCount; ply++) {
+            chessMatch.makeMove(chunk.getShort(position + 2 * ply) & 0xFFFF);
+            if (visitor != null) {
+                visitor.visit(game, ply + 1, chessMatch);
+            }
+        }
+    }
+
+    // hash of everything stored for the game, to tell whether an archive still holds the game an index was built from
+    long fingerprint(int game) {
+        long hash = 0xCBF29CE484222325L;
+        int plyCount = this.getPlyCount(game);
+        hash = mix(hash, plyCount);
+        hash = mix(hash, this.getResult(game));
+        hash = mix(hash, this.getWhiteRating(game) << 16 | this.getBlackRating(game));
+        String fen = this.getStartFen(game);
+        hash = mix(hash, fen != null ? fen.hashCode() : 0);
+        for (int ply = 0; ply < plyCount; ply++) {
+            hash = mix(hash, this.getMove(game, ply));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * 0x100000001B3L;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    static int resultCode(String result) {
+        for (int i = 1; i < RESULTS.length; i++) {
+            if (RESULTS[i].equals(result)) {
+                return i;
+            }
+        }
+        return RESULT_UNKNOWN;
+    }
+
+    private long offset(int game) {
+        if (game < 0 || game >= this.gameCount) {
+            throw new IndexOutOfBoundsException("Game " + game + " of " + this.gameCount);
+        }
+        return this.getLong(this.indexOffset + 8L * game);
+    }
+
+    private long movesOffset(long offset) {
+        boolean hasFen = (this.chunk(offset + 5).get(this.position(offset + 5)) & GameArchiveWriter.HAS_FEN) != 0;
+        return offset + 10 + (hasFen ? 2 + this.getShort(offset + 10) : 0);
+    }
+
+    private ByteBuffer chunk(long offset) {
+        return this.chunks[(int) (offset >>> GameArchiveWriter.CHUNK_SHIFT)];
+    }
+
+    private int position(long offset) {
+        return (int) (offset & (GameArchiveWriter.CHUNK_SIZE - 1));
+    }
+
+    private int getInt(long offset) {
+        return this.chunk(offset).getInt(this.position(offset));
+    }
+
+    private long getLong(long offset) {
+        return this.chunk(offset).getLong(this.position(offset));
+    }
+
+    private int getShort(long offset) {
+        return this.chunk(offset).getShort(this.position(offset)) & 0xFFFF;
+    }
+
+    // usage: GameArchive <archive.bin>
+    // replays every game of the archive and reports the rate
+    public static void main(String[] args) throws IOException {
+        try (GameArchive archive = new GameArchive(Paths.get(args[0]))) {
+            ChessMatch chessMatch = new ChessMatch();
+            long start = System.nanoTime();
+            long plies = 0;
+            for (int game = 0; game < archive.getGameCount(); game++) {
+                archive.replay(game, chessMatch);
+                plies += archive.getPlyCount(game);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("games %d  plies %d  time %.3f s  games/s %.0f  plies/s %.0f%n",
+                    archive.getGameCount(), plies, seconds, archive.getGameCount() / seconds, plies / seconds);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package archive;
+
+import pgn.PgnGame;
+import pgn.PgnReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Writes the binary game archive read by GameArchive. The layout, little endian:
+//   header (32 bytes): magic, version, game count, index offset, 8 reserved bytes
+//   one record per game: ply count (int), result (byte), flags (byte), white and black rating (short each),
+//       the starting FEN as a length-prefixed ASCII string when flag 1 is set, then one 16-bit Move per ply
+//   index: the offset of every record, one long per game
+// Records never cross a 1 GB boundary of the file, so each one can be read from a single mapped chunk.
+public class GameArchiveWriter implements Closeable {
+
+    static final int MAGIC = 0x41474843;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int CHUNK_SHIFT = 30;
+    static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    static final int HAS_FEN = 1;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    private long[] offsets = new long[1024];
+    private int gameCount;
+
+    public GameArchiveWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        // the header is written last, when the count and the index offset are known
+        this.pad(HEADER_SIZE);
+    }
+
+    // adds a resolved, legal game and returns its number in the archive; an illegal game would be stored as its legal
+    // prefix with the result of the whole game, so it is refused
+    public int add(PgnGame game) throws IOException {
+        if (!game.isLegal()) {
+            throw new IllegalArgumentException("Only resolved, legal games can be archived: "
+                    + (game.isResolved() ? game.getError() : "game not resolved"));
+        }
+        int[] moves = game.getMoves();
+        return this.add(moves, moves.length, game.getTag("FEN"), GameArchive.resultCode(game.getResult()),
+                rating(game.getTag("WhiteElo")), rating(game.getTag("BlackElo")));
+    }
+
+    // startFen is null for the standard starting position, ratings are 0 when unknown
+    public int add(int[] moves, int plyCount, String startFen, int result, int whiteRating, int blackRating) throws IOException {
+        byte[] fen = startFen != null ? startFen.getBytes(StandardCharsets.US_ASCII) : null;
+        int size = 10 + (fen != null ? 2 + fen.length : 0) + 2 * plyCount;
+        if (size > this.buffer.capacity()) {
+            throw new IOException("Game too long for the archive: " + plyCount + " plies");
+        }
+        if ((this.position & (CHUNK_SIZE - 1)) + size > CHUNK_SIZE) {
+            this.pad((int) (CHUNK_SIZE - (this.position & (CHUNK_SIZE - 1))));
+        }
+        this.ensureRoom(size);
+
+        if (this.gameCount == this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+        }
+        this.offsets[this.gameCount] = this.position;
+
+        this.buffer.putInt(plyCount);
+        this.buffer.put((byte) result);
+        this.buffer.put((byte) (fen != null ? HAS_FEN : 0));
+        this.buffer.putShort((short) whiteRating);
+        this.buffer.putShort((short) blackRating);
+        if (fen != null) {
+            this.buffer.putShort((short) fen.length);
+            this.buffer.put(fen);
+        }
+        for (int i = 0; i < plyCount; i++) {
+            this.buffer.putShort((short) moves[i]);
+        }
+        this.position += size;
+        return this.gameCount++;
+    }
+
+    public int getGameCount() {
+        return this.gameCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            // the index is 8 byte aligned, so no long in it crosses a chunk boundary
+            this.pad((int) (-this.position & 7));
+            long indexOffset = this.position;
+            for (int i = 0; i < this.gameCount; i++) {
+                this.ensureRoom(8);
+                this.buffer.putLong(this.offsets[i]);
+                this.position += 8;
+            }
+            this.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(this.gameCount).putLong(indexOffset).putLong(0);
+            header.flip();
+            this.channel.write(header, 0);
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    private void pad(int bytes) throws IOException {
+        while (bytes > 0) {
+            this.ensureRoom(1);
+            int n = Math.min(bytes, this.buffer.remaining());
+            for (int i = 0; i < n; i++) {
+                this.buffer.put((byte) 0);
+            }
+            bytes -= n;
+            this.position += n;
+        }
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (this.buffer.remaining() < bytes) {
+            this.flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    static int rating(String tag) {
+        if (tag == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Math.min(Short.MAX_VALUE, Integer.parseInt(tag.trim())));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // usage: GameArchiveWriter <in.pgn> <out.bin>
+    // converts the legal games of a PGN file into an archive, illegal ones are skipped
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        long skipped = 0;
+        int games;
+        try (PgnReader reader = new PgnReader(Paths.get(args[0]));
+             GameArchiveWriter writer = new GameArchiveWriter(Paths.get(args[1]))) {
+            while (reader.hasNext()) {
+                PgnGame game = reader.next();
+                if (game.isLegal()) {
+                    writer.add(game);
+                } else {
+                    skipped++;
+                }
+            }
+            games = writer.getGameCount();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("games %d  skipped %d  time %.3f s%n", games, skipped, seconds);
+    }
+}
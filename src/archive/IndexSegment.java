@@ -0,0 +1,115 @@
+package archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// One immutable file of a PositionIndex, covering a contiguous range of archive games. The layout, little endian:
+//   header (48 bytes): magic, version, entry count, first game, game count, fence offset, fingerprint of the last
+//   game covered, reserved
+//   entries sorted by key, then by game and ply: 16 bytes each, the position key and the packed game and ply
+//   fence: the first key of every block of BLOCK_ENTRIES entries
+// The fence is read into memory, so a lookup is a binary search over it and one over a single block of the mapped file.
+class IndexSegment {
+
+    static final int MAGIC = 0x58444950;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 48;
+    static final int ENTRY_SIZE = 16;
+    static final int BLOCK_ENTRIES = 256;
+
+    private final FileChannel channel;
+    private final ByteBuffer[] chunks;
+    private final long entryCount;
+    private final int firstGame;
+    private final int gameCount;
+    private final long[] fence;
+    private final long lastGameFingerprint;
+
+    IndexSegment(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = this.channel.size();
+        this.chunks = new ByteBuffer[(int) ((size + GameArchiveWriter.CHUNK_SIZE - 1) >>> GameArchiveWriter.CHUNK_SHIFT)];
+        for (int i = 0; i < this.chunks.length; i++) {
+            long start = (long) i << GameArchiveWriter.CHUNK_SHIFT;
+            this.chunks[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(GameArchiveWriter.CHUNK_SIZE, size - start))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (size < HEADER_SIZE || this.chunks[0].getInt(0) != MAGIC || this.chunks[0].getInt(4) != VERSION) {
+            this.channel.close();
+            throw new IOException("Not a position index segment: " + path);
+        }
+
+        this.entryCount = this.chunks[0].getLong(8);
+        this.firstGame = this.chunks[0].getInt(16);
+        this.gameCount = this.chunks[0].getInt(20);
+        long fenceOffset = this.chunks[0].getLong(24);
+        this.lastGameFingerprint = this.chunks[0].getLong(32);
+        this.fence = new long[(int) ((this.entryCount + BLOCK_ENTRIES - 1) / BLOCK_ENTRIES)];
+        for (int i = 0; i < this.fence.length; i++) {
+            this.fence[i] = this.getLong(fenceOffset + 8L * i);
+        }
+    }
+
+    int getFirstGame() {
+        return this.firstGame;
+    }
+
+    int getGameCount() {
+        return this.gameCount;
+    }
+
+    // GameArchive.fingerprint of the segment's last game when it was indexed
+    long getLastGameFingerprint() {
+        return this.lastGameFingerprint;
+    }
+
+    long getEntryCount() {
+        return this.entryCount;
+    }
+
+    // adds the values stored for the key to hits, in game and ply order
+    void lookup(long key, PositionIndex.Hits hits) {
+        // the first block starting at or after the key; the key may also end the block before it
+        int low = 0;
+        int high = this.fence.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.fence[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        long entry = Math.max(0, low - 1) * (long) BLOCK_ENTRIES;
+        long end = Math.min(this.entryCount, entry + BLOCK_ENTRIES);
+        while (entry < end) {
+            long mid = (entry + end) >>> 1;
+            if (this.key(mid) < key) {
+                entry = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+
+        for (; entry < this.entryCount && this.key(entry) == key; entry++) {
+            hits.add(this.getLong(HEADER_SIZE + entry * ENTRY_SIZE + 8));
+        }
+    }
+
+    void close() throws IOException {
+        this.channel.close();
+    }
+
+    private long key(long entry) {
+        return this.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+    }
+
+    private long getLong(long offset) {
+        return this.chunks[(int) (offset >>> GameArchiveWriter.CHUNK_SHIFT)].getLong((int) (offset & (GameArchiveWriter.CHUNK_SIZE - 1)));
+    }
+}
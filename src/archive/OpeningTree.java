@@ -0,0 +1,155 @@
+package archive;
+
+import chess.ChessMatch;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+// The opening positions of a game corpus with the moves played from them, each with the games, wins, draws, losses
+// and average player rating behind it. Nodes and edges live in primitive arrays indexed by number: the edges of a node
+// are the range from getFirstEdge to getEdgeEnd, most played first, and getChild leads to the node the edge reaches,
+// so transpositions share one node. A position is found by its key through an open addressing table, without
+// replaying moves and without allocating. The tree is immutable and may be read by any number of threads.
+public class OpeningTree {
+
+    private final long[] nodeKeys;
+    private final int[] slots;
+    private final int[] firstEdges;
+
+    private final short[] moves;
+    private final int[] children;
+    private final int[] games;
+    private final int[] whiteWins;
+    private final int[] draws;
+    private final int[] blackWins;
+    private final short[] averageRatings;
+
+    OpeningTree(long[] nodeKeys, int[] slots, int[] firstEdges, short[] moves, int[] children, int[] games,
+                int[] whiteWins, int[] draws, int[] blackWins, short[] averageRatings) {
+        this.nodeKeys = nodeKeys;
+        this.slots = slots;
+        this.firstEdges = firstEdges;
+        this.moves = moves;
+        this.children = children;
+        this.games = games;
+        this.whiteWins = whiteWins;
+        this.draws = draws;
+        this.blackWins = blackWins;
+        this.averageRatings = averageRatings;
+    }
+
+    public int getNodeCount() {
+        return this.nodeKeys.length;
+    }
+
+    public int getEdgeCount() {
+        return this.moves.length;
+    }
+
+    // the node of the position, or -1 when no game of the corpus reached it within the tree's depth
+    public int find(long key) {
+        return find(this.nodeKeys, this.slots, key);
+    }
+
+    public int find(ChessMatch chessMatch) {
+        return this.find(chessMatch.getPositionKey());
+    }
+
+    public long getKey(int node) {
+        return this.nodeKeys[node];
+    }
+
+    public int getFirstEdge(int node) {
+        return this.firstEdges[node];
+    }
+
+    public int getEdgeEnd(int node) {
+        return this.firstEdges[node + 1];
+    }
+
+    public int getMove(int edge) {
+        return this.moves[edge] & 0xFFFF;
+    }
+
+    // the node of the position after the move, or -1 when no game in the tree has a move from that position
+    public int getChild(int edge) {
+        return this.children[edge];
+    }
+
+    public int getGames(int edge) {
+        return this.games[edge];
+    }
+
+    public int getWhiteWins(int edge) {
+        return this.whiteWins[edge];
+    }
+
+    public int getDraws(int edge) {
+        return this.draws[edge];
+    }
+
+    public int getBlackWins(int edge) {
+        return this.blackWins[edge];
+    }
+
+    // of the rated players of the games, 0 when none was rated
+    public int getAverageRating(int edge) {
+        return this.averageRatings[edge] & 0xFFFF;
+    }
+
+    // slots hold node + 1, 0 marks an empty slot; keys are random already, their low bits pick the slot
+    static int find(long[] nodeKeys, int[] slots, long key) {
+        int mask = slots.length - 1;
+        for (int slot = (int) key & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (nodeKeys[slots[slot] - 1] == key) {
+                return slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    // usage: OpeningTree <archive.bin> [max ply [fen]]
+    // builds the tree of the archive, lists the moves of the position, the starting one by default, and reports the
+    // time a lookup of it takes
+    public static void main(String[] args) throws IOException {
+        int maxPly = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String fen = args.length > 2 ? String.join(" ", Arrays.copyOfRange(args, 2, args.length)) : ChessMatch.STARTING_FEN;
+        OpeningTree tree;
+        try (GameArchive archive = new GameArchive(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            OpeningTreeBuilder builder = new OpeningTreeBuilder(maxPly);
+            builder.add(archive);
+            tree = builder.build();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("games %d  max ply %d  nodes %d  edges %d  time %.3f s%n",
+                    archive.getGameCount(), maxPly, tree.getNodeCount(), tree.getEdgeCount(), seconds);
+        }
+
+        long key = ChessMatch.fromFen(fen).getPositionKey();
+        int node = tree.find(key);
+        if (node < 0) {
+            System.out.println("position not in tree");
+            return;
+        }
+        for (int edge = tree.getFirstEdge(node); edge < tree.getEdgeEnd(node); edge++) {
+            int games = tree.getGames(edge);
+            System.out.printf("%-6s games %7d  white %5.1f%%  draw %5.1f%%  black %5.1f%%  rating %d%n",
+                    Move.toString(tree.getMove(edge)), games, 100.0 * tree.getWhiteWins(edge) / games,
+                    100.0 * tree.getDraws(edge) / games, 100.0 * tree.getBlackWins(edge) / games, tree.getAverageRating(edge));
+        }
+
+        int lookups = 10000000;
+        long total = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            int found = tree.find(key);
+            for (int edge = tree.getFirstEdge(found); edge < tree.getEdgeEnd(found); edge++) {
+                total += tree.getGames(edge);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("lookups %d  ns/lookup %.1f  (%d)%n", lookups, seconds * 1e9 / lookups, total);
+    }
+}
@@ -0,0 +1,240 @@
+package archive;
+
+import chess.ChessMatch;
+import pgn.PgnGame;
+
+import java.util.Arrays;
+
+// Collects the first plies of games into an OpeningTree. While building, the edges of a node form a linked list in
+// the edge arrays, so adding a game costs a hash lookup and a short list walk per ply; build lays the edges of each
+// node out next to each other, most played first, and drops the arrays only building needs.
+public class OpeningTreeBuilder {
+
+    private final int maxPly;
+    private final ChessMatch chessMatch = new ChessMatch();
+    private final int[] scratch;
+
+    private long[] nodeKeys = new long[1 << 10];
+    private int[] headEdges = new int[1 << 10];
+    private int[] slots = new int[1 << 11];
+    private int nodeCount;
+
+    private short[] moves = new short[1 << 10];
+    private int[] children = new int[1 << 10];
+    // the position each edge leads to, so build can link edges whose child only got a node after they were added
+    private long[] childKeys = new long[1 << 10];
+    private int[] nextEdges = new int[1 << 10];
+    private int[] games = new int[1 << 10];
+    private int[] whiteWins = new int[1 << 10];
+    private int[] draws = new int[1 << 10];
+    private int[] blackWins = new int[1 << 10];
+    private long[] ratingSums = new long[1 << 10];
+    private int[] ratedPlayers = new int[1 << 10];
+    // the last game counted on each edge, so a game repeating a position counts once
+    private int[] countedGames = new int[1 << 10];
+    private int edgeCount;
+    private int gameCount;
+
+    // only the first maxPly plies of each game enter the tree
+    public OpeningTreeBuilder(int maxPly) {
+        this.maxPly = maxPly;
+        this.scratch = new int[maxPly];
+    }
+
+    public void add(GameArchive archive) {
+        for (int game = 0; game < archive.getGameCount(); game++) {
+            this.add(archive, game);
+        }
+    }
+
+    public void add(GameArchive archive, int game) {
+        int plyCount = Math.min(this.maxPly, archive.getPlyCount(game));
+        for (int ply = 0; ply < plyCount; ply++) {
+            this.scratch[ply] = archive.getMove(game, ply);
+        }
+        this.add(this.scratch, plyCount, archive.getStartFen(game), archive.getResult(game), archive.getWhiteRating(game),
+                archive.getBlackRating(game));
+    }
+
+    // adds a resolved, legal game; the legal prefix of an illegal game would be counted with the whole game's result
+    public void add(PgnGame game) {
+        if (!game.isLegal()) {
+            throw new IllegalArgumentException("Only resolved, legal games can be added: "
+                    + (game.isResolved() ? game.getError() : "game not resolved"));
+        }
+        int[] moves = game.getMoves();
+        this.add(moves, moves.length, game.getTag("FEN"), GameArchive.resultCode(game.getResult()),
+                GameArchiveWriter.rating(game.getTag("WhiteElo")), GameArchiveWriter.rating(game.getTag("BlackElo")));
+    }
+
+    // startFen is null for the standard starting position, result one of the GameArchive RESULT_ constants and
+    // ratings 0 when unknown
+    public void add(int[] moves, int plyCount, String startFen, int result, int whiteRating, int blackRating) {
+        this.chessMatch.load(startFen != null ? startFen : ChessMatch.STARTING_FEN);
+        int plies = Math.min(this.maxPly, plyCount);
+        int node = this.node(this.chessMatch.getPositionKey());
+        // games are numbered from 1, a new edge starts out counted by game 0
+        int game = ++this.gameCount;
+        for (int ply = 0; ply < plies; ply++) {
+            int edge = this.edge(node, moves[ply]);
+            if (this.countedGames[edge] != game) {
+                this.countedGames[edge] = game;
+                this.count(edge, result, whiteRating, blackRating);
+            }
+
+            this.chessMatch.makeMove(moves[ply]);
+            // the position after the last ply has no moves in the tree, it only gets a node once a longer game reaches
+            // it, possibly through another move order; build links the edge then
+            if (this.children[edge] < 0) {
+                long key = this.chessMatch.getPositionKey();
+                this.childKeys[edge] = key;
+                if (ply + 1 < plies) {
+                    this.children[edge] = this.node(key);
+                }
+            }
+            if (ply + 1 < plies) {
+                node = this.children[edge];
+            }
+        }
+    }
+
+    private void count(int edge, int result, int whiteRating, int blackRating) {
+        this.games[edge]++;
+        if (result == GameArchive.WHITE_WINS) {
+            this.whiteWins[edge]++;
+        } else if (result == GameArchive.DRAW) {
+            this.draws[edge]++;
+        } else if (result == GameArchive.BLACK_WINS) {
+            this.blackWins[edge]++;
+        }
+        if (whiteRating > 0) {
+            this.ratingSums[edge] += whiteRating;
+            this.ratedPlayers[edge]++;
+        }
+        if (blackRating > 0) {
+            this.ratingSums[edge] += blackRating;
+            this.ratedPlayers[edge]++;
+        }
+    }
+
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    public OpeningTree build() {
+        int[] firstEdges = new int[this.nodeCount + 1];
+        short[] moves = new short[this.edgeCount];
+        int[] children = new int[this.edgeCount];
+        int[] games = new int[this.edgeCount];
+        int[] whiteWins = new int[this.edgeCount];
+        int[] draws = new int[this.edgeCount];
+        int[] blackWins = new int[this.edgeCount];
+        short[] averageRatings = new short[this.edgeCount];
+
+        int[] order = new int[64];
+        int next = 0;
+        for (int node = 0; node < this.nodeCount; node++) {
+            firstEdges[node] = next;
+            int count = 0;
+            for (int edge = this.headEdges[node]; edge >= 0; edge = this.nextEdges[edge]) {
+                if (count == order.length) {
+                    order = Arrays.copyOf(order, count * 2);
+                }
+                // insertion sort by games, most played first; a node has few moves
+                int i = count++;
+                for (; i > 0 && this.games[order[i - 1]] < this.games[edge]; i--) {
+                    order[i] = order[i - 1];
+                }
+                order[i] = edge;
+            }
+            for (int i = 0; i < count; i++, next++) {
+                int edge = order[i];
+                moves[next] = this.moves[edge];
+                children[next] = this.children[edge] >= 0 ? this.children[edge]
+                        : OpeningTree.find(this.nodeKeys, this.slots, this.childKeys[edge]);
+                games[next] = this.games[edge];
+                whiteWins[next] = this.whiteWins[edge];
+                draws[next] = this.draws[edge];
+                blackWins[next] = this.blackWins[edge];
+                averageRatings[next] = (short) (this.ratedPlayers[edge] == 0 ? 0 : this.ratingSums[edge] / this.ratedPlayers[edge]);
+            }
+        }
+        firstEdges[this.nodeCount] = next;
+
+        return new OpeningTree(Arrays.copyOf(this.nodeKeys, this.nodeCount), this.slots.clone(), firstEdges, moves, children,
+                games, whiteWins, draws, blackWins, averageRatings);
+    }
+
+    // the node of the position, created when it is new
+    private int node(long key) {
+        int node = OpeningTree.find(this.nodeKeys, this.slots, key);
+        if (node >= 0) {
+            return node;
+        }
+        if (this.nodeCount == this.nodeKeys.length) {
+            int capacity = grow(this.nodeCount);
+            this.nodeKeys = Arrays.copyOf(this.nodeKeys, capacity);
+            this.headEdges = Arrays.copyOf(this.headEdges, capacity);
+        }
+        node = this.nodeCount++;
+        this.nodeKeys[node] = key;
+        this.headEdges[node] = -1;
+        // at most half the slots are in use, so probe sequences stay short
+        if (2 * this.nodeCount > this.slots.length) {
+            this.slots = new int[this.slots.length * 2];
+            for (int i = 0; i < this.nodeCount; i++) {
+                this.insert(i);
+            }
+        } else {
+            this.insert(node);
+        }
+        return node;
+    }
+
+    private void insert(int node) {
+        int mask = this.slots.length - 1;
+        int slot = (int) this.nodeKeys[node] & mask;
+        while (this.slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        this.slots[slot] = node + 1;
+    }
+
+    // the edge of the move from the node, created when it is new
+    private int edge(int node, int move) {
+        for (int edge = this.headEdges[node]; edge >= 0; edge = this.nextEdges[edge]) {
+            if ((this.moves[edge] & 0xFFFF) == move) {
+                return edge;
+            }
+        }
+        if (this.edgeCount == this.moves.length) {
+            int capacity = grow(this.edgeCount);
+            this.moves = Arrays.copyOf(this.moves, capacity);
+            this.children = Arrays.copyOf(this.children, capacity);
+            this.childKeys = Arrays.copyOf(this.childKeys, capacity);
+            this.nextEdges = Arrays.copyOf(this.nextEdges, capacity);
+            this.games = Arrays.copyOf(this.games, capacity);
+            this.whiteWins = Arrays.copyOf(this.whiteWins, capacity);
+            this.draws = Arrays.copyOf(this.draws, capacity);
+            this.blackWins = Arrays.copyOf(this.blackWins, capacity);
+            this.ratingSums = Arrays.copyOf(this.ratingSums, capacity);
+            this.ratedPlayers = Arrays.copyOf(this.ratedPlayers, capacity);
+            this.countedGames = Arrays.copyOf(this.countedGames, capacity);
+        }
+        int edge = this.edgeCount++;
+        this.moves[edge] = (short) move;
+        this.children[edge] = -1;
+        this.countedGames[edge] = 0;
+        this.nextEdges[edge] = this.headEdges[node];
+        this.headEdges[node] = edge;
+        return edge;
+    }
+
+    // half again as large, the tree grows to tens of millions of entries and doubling would waste too much of it
+    private static int grow(int size) {
+        if (size == Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Opening tree full");
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 8, size + (size >> 1) + 16L);
+    }
+}
@@ -0,0 +1,182 @@
+package archive;
+
+import chess.ChessMatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Maps the position key of every position of a game archive to the games and plies where it occurs. The index is a
+// directory of segment files, each covering the next range of archive games; PositionIndexBuilder appends a segment
+// for the games added to the archive since the last one. A lookup searches every segment, which keeps only a sparse
+// fence of keys in memory and reads one block of its mapped file.
+public class PositionIndex implements Closeable {
+
+    static final String SEGMENT_PREFIX = "segment-";
+    static final String SEGMENT_SUFFIX = ".idx";
+
+    private final List<IndexSegment> segments = new ArrayList<>();
+
+    public PositionIndex(Path directory) throws IOException {
+        List<Path> paths = segmentPaths(directory);
+        try {
+            for (Path path : paths) {
+                this.segments.add(new IndexSegment(path));
+            }
+        } catch (IOException e) {
+            this.close();
+            throw e;
+        }
+        // segments are searched in game order, so the hits come out ordered by game
+        this.segments.sort((a, b) -> Integer.compare(a.getFirstGame(), b.getFirstGame()));
+    }
+
+    // the archive games before this one are indexed
+    public int getIndexedGameCount() {
+        int count = 0;
+        for (IndexSegment segment : this.segments) {
+            count = Math.max(count, segment.getFirstGame() + segment.getGameCount());
+        }
+        return count;
+    }
+
+    public int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    public long getEntryCount() {
+        long count = 0;
+        for (IndexSegment segment : this.segments) {
+            count += segment.getEntryCount();
+        }
+        return count;
+    }
+
+    // replaces the contents of hits with the games and plies of the position, ordered by game and ply
+    public void lookup(long key, Hits hits) {
+        hits.clear();
+        for (IndexSegment segment : this.segments) {
+            segment.lookup(key, hits);
+        }
+    }
+
+    public Hits lookup(ChessMatch chessMatch) {
+        Hits hits = new Hits();
+        this.lookup(chessMatch.getPositionKey(), hits);
+        return hits;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (IndexSegment segment : this.segments) {
+            segment.close();
+        }
+    }
+
+    static List<Path> segmentPaths(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                for (Path path : stream) {
+                    paths.add(path);
+                }
+            }
+        }
+        paths.sort(null);
+        return paths;
+    }
+
+    static long pack(int game, int ply) {
+        return (long) game << 32 | ply;
+    }
+
+    // the games and plies found by a lookup; reused between lookups so a query allocates nothing once it has grown
+    public static class Hits {
+
+        private long[] values = new long[16];
+        private int size;
+
+        public int size() {
+            return this.size;
+        }
+
+        public int getGame(int i) {
+            return (int) (this.values[i] >>> 32);
+        }
+
+        public int getPly(int i) {
+            return (int) this.values[i];
+        }
+
+        void add(long value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+
+        void clear() {
+            this.size = 0;
+        }
+    }
+
+    // usage: PositionIndex <index dir> <archive.bin> [fen]
+    // with a fen lists the games reaching the position; without one looks up positions sampled from the archive,
+    // checks each lookup finds the game and ply it was sampled from and reports the time per lookup
+    public static void main(String[] args) throws IOException {
+        try (PositionIndex index = new PositionIndex(Paths.get(args[0]));
+             GameArchive archive = new GameArchive(Paths.get(args[1]))) {
+            Hits hits = new Hits();
+            if (args.length > 2) {
+                ChessMatch chessMatch = ChessMatch.fromFen(String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+                long start = System.nanoTime();
+                index.lookup(chessMatch.getPositionKey(), hits);
+                double micros = (System.nanoTime() - start) / 1e3;
+                System.out.printf("games %d  time %.1f us%n", hits.size(), micros);
+                for (int i = 0; i < Math.min(hits.size(), 20); i++) {
+                    System.out.printf("game %d  ply %d  %s%n", hits.getGame(i), hits.getPly(i), archive.getResultString(hits.getGame(i)));
+                }
+                return;
+            }
+
+            int samples = 100000;
+            int games = index.getIndexedGameCount();
+            long[] keys = new long[samples];
+            long[] expected = new long[samples];
+            Random random = new Random(1);
+            ChessMatch chessMatch = new ChessMatch();
+            for (int i = 0; i < samples; i++) {
+                int game = random.nextInt(games);
+                int ply = random.nextInt(archive.getPlyCount(game) + 1);
+                int sample = i;
+                archive.replay(game, chessMatch, (g, p, match) -> {
+                    if (p == ply) {
+                        keys[sample] = match.getPositionKey();
+                    }
+                });
+                expected[i] = pack(game, ply);
+            }
+
+            int missing = 0;
+            long total = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < samples; i++) {
+                index.lookup(keys[i], hits);
+                total += hits.size();
+                if (Arrays.binarySearch(hits.values, 0, hits.size(), expected[i]) < 0) {
+                    missing++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("segments %d  entries %d  lookups %d  hits %d  missing %d  time %.3f s  us/lookup %.2f%n",
+                    index.getSegmentCount(), index.getEntryCount(), samples, total, missing, seconds, seconds * 1e6 / samples);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package archive;
+
+import chess.ChessMatch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Builds the segments of a PositionIndex. Worker threads take ranges of games, replay them and collect the key, game
+// and ply of every position in a buffer; a full buffer is radix sorted and written out as a run file, so memory stays
+// bounded however large the archive is. The runs are then merged into one segment. Appending only indexes the games
+// the archive holds beyond the last segment, existing segments are never rewritten.
+public class PositionIndexBuilder {
+
+    private static final int GAMES_PER_TASK = 256;
+
+    private final int threads;
+    private int runEntries = 1 << 20;
+
+    public PositionIndexBuilder(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    // entries each thread buffers before writing a sorted run, 32 bytes of memory per entry
+    public void setRunEntries(int runEntries) {
+        this.runEntries = Math.max(1024, Math.min(runEntries, 1 << 26));
+    }
+
+    // indexes the archive games after the last indexed one as a new segment and returns how many games it added.
+    // The archive must still hold the games already indexed: archives are rewritten rather than appended to, so each
+    // segment's last game is compared with the archive's and a rebuilt archive is refused instead of mixing game
+    // numbers of two archives in one index.
+    public int append(GameArchive archive, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        int firstGame = 0;
+        for (Path path : PositionIndex.segmentPaths(directory)) {
+            IndexSegment segment = new IndexSegment(path);
+            int lastGame = segment.getFirstGame() + segment.getGameCount() - 1;
+            long fingerprint = segment.getLastGameFingerprint();
+            segment.close();
+            if (lastGame >= archive.getGameCount() || archive.fingerprint(lastGame) != fingerprint) {
+                throw new IOException("Archive does not hold the games indexed in " + path + ", rebuild the index");
+            }
+            firstGame = Math.max(firstGame, lastGame + 1);
+        }
+        int gameCount = archive.getGameCount() - firstGame;
+        if (gameCount <= 0) {
+            return 0;
+        }
+
+        List<Path> runs = Collections.synchronizedList(new ArrayList<>());
+        try {
+            this.writeRuns(archive, firstGame, archive.getGameCount(), directory, runs);
+            // written under a temporary name, so an interrupted build never leaves a partial segment behind
+            Path temporary = directory.resolve(String.format("%010d.tmp", firstGame));
+            merge(runs, temporary, firstGame, gameCount, archive.fingerprint(firstGame + gameCount - 1));
+            Path segment = directory.resolve(String.format("%s%010d%s", PositionIndex.SEGMENT_PREFIX, firstGame, PositionIndex.SEGMENT_SUFFIX));
+            Files.move(temporary, segment, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+        return gameCount;
+    }
+
+    private void writeRuns(GameArchive archive, int firstGame, int endGame, Path directory, List<Path> runs) throws IOException {
+        AtomicInteger nextTask = new AtomicInteger();
+        AtomicInteger nextRun = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] workers = new Thread[this.threads];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    RunBuffer buffer = new RunBuffer(this.runEntries);
+                    ChessMatch chessMatch = new ChessMatch();
+                    PositionVisitor visitor = (game, ply, match) -> {
+                        if (buffer.isFull()) {
+                            runs.add(buffer.write(directory, nextRun.getAndIncrement()));
+                        }
+                        buffer.add(match.getPositionKey(), PositionIndex.pack(game, ply));
+                    };
+                    int task;
+                    while (failure.get() == null && (task = nextTask.getAndIncrement()) * (long) GAMES_PER_TASK < endGame - firstGame) {
+                        int start = firstGame + task * GAMES_PER_TASK;
+                        int end = Math.min(endGame, start + GAMES_PER_TASK);
+                        for (int game = start; game < end; game++) {
+                            archive.replay(game, chessMatch, visitor);
+                        }
+                    }
+                    if (buffer.size > 0) {
+                        runs.add(buffer.write(directory, nextRun.getAndIncrement()));
+                    }
+                } catch (Throwable e) {
+                    // a worker that dies unnoticed would leave its games out of the segment
+                    failure.compareAndSet(null, e);
+                }
+            }, "index-worker-" + (i + 1));
+            workers[i].start();
+        }
+
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new IllegalStateException("Interrupted while indexing"));
+            }
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) error).getCause();
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        if (error != null) {
+            throw (RuntimeException) error;
+        }
+    }
+
+    // k-way merge of the sorted runs by key, then game and ply, into a segment file
+    private static void merge(List<Path> runs, Path output, int firstGame, int gameCount, long lastGameFingerprint) throws IOException {
+        int count = runs.size();
+        ByteBuffer[] inputs = new ByteBuffer[count];
+        long[] keys = new long[count];
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            try (FileChannel channel = FileChannel.open(runs.get(i), StandardOpenOption.READ)) {
+                inputs[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        // binary min-heap of the runs that still have entries, by their current entry
+        int[] heap = new int[count];
+        int heapSize = 0;
+        for (int i = 0; i < count; i++) {
+            if (inputs[i].hasRemaining()) {
+                keys[i] = inputs[i].getLong();
+                values[i] = inputs[i].getLong();
+                heap[heapSize++] = i;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, keys, values);
+        }
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(new byte[IndexSegment.HEADER_SIZE]);
+            long[] fence = new long[1024];
+            long entries = 0;
+            while (heapSize > 0) {
+                int run = heap[0];
+                if (entries % IndexSegment.BLOCK_ENTRIES == 0) {
+                    int block = (int) (entries / IndexSegment.BLOCK_ENTRIES);
+                    if (block == fence.length) {
+                        fence = Arrays.copyOf(fence, block * 2);
+                    }
+                    fence[block] = keys[run];
+                }
+                if (buffer.remaining() < IndexSegment.ENTRY_SIZE) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(keys[run]).putLong(values[run]);
+                entries++;
+
+                if (inputs[run].hasRemaining()) {
+                    keys[run] = inputs[run].getLong();
+                    values[run] = inputs[run].getLong();
+                } else {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(heap, heapSize, 0, keys, values);
+            }
+
+            long fenceOffset = IndexSegment.HEADER_SIZE + entries * IndexSegment.ENTRY_SIZE;
+            int blocks = (int) ((entries + IndexSegment.BLOCK_ENTRIES - 1) / IndexSegment.BLOCK_ENTRIES);
+            for (int i = 0; i < blocks; i++) {
+                if (buffer.remaining() < 8) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(fence[i]);
+            }
+            flush(channel, buffer);
+
+            ByteBuffer header = ByteBuffer.allocate(IndexSegment.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(IndexSegment.MAGIC).putInt(IndexSegment.VERSION).putLong(entries).putInt(firstGame).putInt(gameCount)
+                    .putLong(fenceOffset).putLong(lastGameFingerprint).putLong(0);
+            header.flip();
+            channel.write(header, 0);
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, int i, long[] keys, long[] values) {
+        int run = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child], keys, values)) {
+                child++;
+            }
+            if (!less(heap[child], run, keys, values)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = run;
+    }
+
+    private static boolean less(int a, int b, long[] keys, long[] values) {
+        return keys[a] < keys[b] || keys[a] == keys[b] && values[a] < values[b];
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // the entries one worker collects before writing them out as a sorted run
+    private static class RunBuffer {
+
+        private long[] keys;
+        private long[] values;
+        private long[] sortedKeys;
+        private long[] sortedValues;
+        private final int[] counts = new int[(1 << 16) + 1];
+        private int size;
+
+        private RunBuffer(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+            this.sortedKeys = new long[capacity];
+            this.sortedValues = new long[capacity];
+        }
+
+        private boolean isFull() {
+            return this.size == this.keys.length;
+        }
+
+        private void add(long key, long value) {
+            this.keys[this.size] = key;
+            this.values[this.size] = value;
+            this.size++;
+        }
+
+        private Path write(Path directory, int number) {
+            this.sort();
+            Path path = directory.resolve(String.format("run-%04d.tmp", number));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < this.size; i++) {
+                    if (buffer.remaining() < IndexSegment.ENTRY_SIZE) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putLong(this.keys[i]).putLong(this.values[i]);
+                }
+                flush(channel, buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.size = 0;
+            return path;
+        }
+
+        // least significant digit radix sort by key, 16 bits a pass; being stable it keeps the values of a key in the
+        // ascending order they were added in. The top digit has its sign bit flipped to order keys as signed longs.
+        private void sort() {
+            for (int shift = 0; shift < 64; shift += 16) {
+                int flip = shift == 48 ? 0x8000 : 0;
+                Arrays.fill(this.counts, 0);
+                for (int i = 0; i < this.size; i++) {
+                    this.counts[(((int) (this.keys[i] >>> shift) & 0xFFFF) ^ flip) + 1]++;
+                }
+                for (int i = 1; i < this.counts.length; i++) {
+                    this.counts[i] += this.counts[i - 1];
+                }
+                for (int i = 0; i < this.size; i++) {
+                    int position = this.counts[((int) (this.keys[i] >>> shift) & 0xFFFF) ^ flip]++;
+                    this.sortedKeys[position] = this.keys[i];
+                    this.sortedValues[position] = this.values[i];
+                }
+
+                long[] keys = this.keys;
+                this.keys = this.sortedKeys;
+                this.sortedKeys = keys;
+                long[] values = this.values;
+                this.values = this.sortedValues;
+                this.sortedValues = values;
+            }
+        }
+    }
+
+    // usage: PositionIndexBuilder <archive.bin> <index dir> [threads]
+    // indexes the games of the archive not yet in the index and reports the rate
+    public static void main(String[] args) throws IOException {
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try (GameArchive archive = new GameArchive(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            int games = new PositionIndexBuilder(threads).append(archive, Paths.get(args[1]));
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("games added %d  threads %d  time %.3f s  games/s %.0f%n", games, threads, seconds, games / seconds);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package archive;
+
+import chess.ChessMatch;
+
+// Called for every position of a replayed game, the starting one at ply 0 included. The match must not be changed.
+public interface PositionVisitor {
+
+    void visit(int game, int ply, ChessMatch chessMatch);
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+// Minimal JMH-style harness: timed warmup and measurement iterations, throughput in ops/s and allocation in bytes/op
+// from the HotSpot per-thread allocation counter (the equivalent of the JMH gc profiler's gc.alloc.rate.norm).
+public class BenchmarkRunner {
+
+    public interface Operation {
+        long run();
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    // results are folded in here, so the JIT cannot drop the measured work
+    private long sink;
+
+    public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    public void run(String name, Operation operation) {
+        for (int i = 0; i < this.warmupIterations; i++) {
+            this.iteration(operation);
+        }
+
+        double[] throughput = new double[this.measurementIterations];
+        long operations = 0;
+        long allocated = 0;
+        for (int i = 0; i < this.measurementIterations; i++) {
+            long bytesBefore = this.allocatedBytes();
+            long start = System.nanoTime();
+            long count = this.iteration(operation);
+            long elapsed = System.nanoTime() - start;
+            allocated += this.allocatedBytes() - bytesBefore;
+            operations += count;
+            throughput[i] = count / (elapsed / 1e9);
+        }
+
+        double mean = Arrays.stream(throughput).average().orElse(0);
+        double deviation = Math.sqrt(Arrays.stream(throughput).map(x -> (x - mean) * (x - mean)).sum() / throughput.length);
+        System.out.printf("%-48s %14.0f +- %12.0f ops/s %12.1f B/op%n", name, mean, deviation, (double) allocated / operations);
+    }
+
+    private long iteration(Operation operation) {
+        long count = 0;
+        long end = System.nanoTime() + this.iterationNanos;
+        do {
+            // batches keep the clock reads out of the measurement
+            for (int i = 0; i < 64; i++) {
+                this.sink += operation.run();
+            }
+            count += 64;
+        } while (System.nanoTime() < end);
+        return count;
+    }
+
+    private long allocatedBytes() {
+        if (this.threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) this.threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    public long getSink() {
+        return this.sink;
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import chess.Bitboards;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Color;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.PieceType;
+
+// Benchmarks of the hot paths: possibleMoves() of every piece type, check and checkmate detection, move execution and
+// getPieces(), on a set of opening, middlegame and endgame positions.
+// usage: ChessBenchmarks [iterationMillis] [warmupIterations] [measurementIterations]
+public class ChessBenchmarks {
+
+    private static final String[][] POSITIONS = {
+            {"start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -"},
+            {"midgame", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -"},
+            {"midgame-2", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - -"},
+            {"endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -"},
+            {"endgame-2", "6k1/5ppp/8/8/8/2q5/5PPP/3R2K1 w - -"},
+    };
+
+    public static void main(String[] args) {
+        long iterationMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations, iterationMillis);
+
+        for (String[] position : POSITIONS) {
+            String name = position[0];
+            ChessMatch chessMatch = ChessMatch.fromFen(position[1]);
+
+            for (PieceType type : PieceType.values()) {
+                long pieces = chessMatch.getBoard().getBitboard(type, chessMatch.getCurrentPlayer());
+                if (pieces == 0) {
+                    continue;
+                }
+                ChessPiece piece = chessMatch.getBoard().piece(Long.numberOfTrailingZeros(pieces));
+                runner.run(name + " " + type + ".possibleMoves", () -> piece.possibleMoves().length);
+                runner.run(name + " " + type + ".possibleMovesMask", piece::possibleMovesMask);
+            }
+
+            runner.run(name + " testCheck", () -> chessMatch.testCheck() ? 1 : 0);
+            runner.run(name + " testCheckMate", () -> chessMatch.testCheckMate() ? 1 : 0);
+
+            MoveList moves = new MoveList();
+            runner.run(name + " generateLegalMoves", () -> MoveGenerator.generateLegalMoves(chessMatch, moves));
+
+            MoveGenerator.generateLegalMoves(chessMatch, moves);
+            int move = moves.get(0);
+            ChessPosition source = chessPosition(Move.from(move));
+            ChessPosition target = chessPosition(Move.to(move));
+            runner.run(name + " performChessMove " + Move.toString(move), () -> {
+                ChessPiece captured = chessMatch.performChessMove(source, target);
+                chessMatch.undoMove();
+                return captured == null ? 0 : 1;
+            });
+            runner.run(name + " makeMove/undoMove " + Move.toString(move), () -> {
+                chessMatch.makeMove(move);
+                chessMatch.undoMove();
+                return 1;
+            });
+
+            runner.run(name + " getPieces", () -> chessMatch.getPieces().length);
+            System.out.println();
+        }
+
+        // keeps the sink observable
+        if (runner.getSink() == 42) {
+            System.out.println(Color.WHITE);
+        }
+    }
+
+    private static ChessPosition chessPosition(int square) {
+        return new ChessPosition((char) ('a' + Bitboards.column(square)), 8 - Bitboards.row(square));
+    }
+}
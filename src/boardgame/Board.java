@@ -1,25 +1,25 @@
 package boardgame;
 
 public class Board {
-    private final Integer rows;
-    private final Integer columns;
+    private final int rows;
+    private final int columns;
     private final Piece[][] pieces;
 
-    public Board(Integer rows, Integer columns) {
+    public Board(int rows, int columns) {
         if (rows < 1 || columns < 1) {
             throw new BoardException("Error creating board: There must be at least 1 row and 1 column");
         }
         this.rows = rows;
         this.columns = columns;
-        this.pieces = new Piece[this.getRows()][this.getColumns()];
+        this.pieces = new Piece[rows][columns];
     }
 
-    public Integer getRows() {
+    public int getRows() {
         return rows;
     }
 
 
-    public Integer getColumns() {
+    public int getColumns() {
         return columns;
     }
 
@@ -34,12 +34,7 @@ public class Board {
     }
 
     public Piece piece(Position position) {
-
-        if (!this.positionExists(position)) {
-            throw new BoardException("Position not on the board");
-        }
-
-        return this.pieces[position.getRow()][position.getColumn()];
+        return this.piece(position.getRow(), position.getColumn());
     }
 
     public void placePiece(Piece piece, Position position) {
@@ -57,19 +52,35 @@ public class Board {
         if (!this.positionExists(position)) {
             throw new BoardException("Position not on the board. ");
         }
-        if (this.piece(position) == null) {
+        Piece aux = this.pieces[position.getRow()][position.getColumn()];
+        if (aux == null) {
             return null;
         } else {
-            Piece aux = this.piece(position);
-
             aux.position = null;
             this.pieces[position.getRow()][position.getColumn()] = null;
             return aux;
         }
     }
 
+    // unchecked access for subclasses that only work with valid positions and keep their own bookkeeping
+    protected Piece pieceAt(int row, int column) {
+        return this.pieces[row][column];
+    }
+
+    protected void setPiece(Piece piece, Position position) {
+        this.pieces[position.getRow()][position.getColumn()] = piece;
+        piece.position = position;
+    }
+
+    protected Piece clearPiece(Position position) {
+        Piece piece = this.pieces[position.getRow()][position.getColumn()];
+        this.pieces[position.getRow()][position.getColumn()] = null;
+        piece.position = null;
+        return piece;
+    }
+
     private boolean positionExists(int row, int column) {
-        return row >= 0 && row < this.getRows() && column >= 0 && column < this.getColumns();
+        return row >= 0 && row < this.rows && column >= 0 && column < this.columns;
     }
 
     public boolean positionExists(Position position) {
@@ -77,11 +88,6 @@ public class Board {
     }
 
     public boolean thereIsAPiece(Position position) {
-
-        if (!this.positionExists(position)) {
-            throw new BoardException("Position not on the board");
-        }
-
         return this.piece(position) != null;
     }
 }
@@ -0,0 +1,185 @@
+package book;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+// An opening book in the Polyglot format, mapped from disk instead of read onto the heap. The file is a sorted array
+// of 16 byte big endian entries: the position key, the move, its weight and 4 bytes of learning data that are ignored.
+// A probe is a binary search for the first entry of the key, then a walk over the moves stored for it. Probes only
+// read the mapping, so one book can serve any number of threads.
+public class PolyglotBook implements Closeable {
+
+    private static final int ENTRY_SIZE = 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer entries;
+    private final int entryCount;
+    private final PolyglotKeys keys;
+
+    public PolyglotBook(Path path, PolyglotKeys keys) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = this.channel.size();
+        if (size % ENTRY_SIZE != 0 || size > Integer.MAX_VALUE) {
+            this.channel.close();
+            throw new IOException("Not a Polyglot book: " + path);
+        }
+        this.entries = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        this.entryCount = (int) (size / ENTRY_SIZE);
+        this.keys = keys;
+    }
+
+    public int getEntryCount() {
+        return this.entryCount;
+    }
+
+    // replaces the contents of bookMoves with the legal book moves of the position and returns how many there are
+    public int lookup(ChessMatch chessMatch, BookMoves bookMoves) {
+        bookMoves.size = 0;
+        long key = this.keys.key(chessMatch);
+        // keys are sorted as unsigned numbers
+        int low = 0;
+        int high = this.entryCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(this.entries.getLong(mid * ENTRY_SIZE), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        boolean generated = false;
+        for (int entry = low; entry < this.entryCount && this.entries.getLong(entry * ENTRY_SIZE) == key
+                && bookMoves.size < bookMoves.moves.length; entry++) {
+            if (!generated) {
+                MoveGenerator.generateLegalMoves(chessMatch, bookMoves.legalMoves);
+                generated = true;
+            }
+            int move = decode(this.entries.getShort(entry * ENTRY_SIZE + 8) & 0xFFFF, bookMoves.legalMoves);
+            // a book move that is not legal here belongs to another position with the same key
+            if (move != Move.NONE) {
+                bookMoves.moves[bookMoves.size] = move;
+                bookMoves.weights[bookMoves.size] = this.entries.getShort(entry * ENTRY_SIZE + 10) & 0xFFFF;
+                bookMoves.size++;
+            }
+        }
+        return bookMoves.size;
+    }
+
+    // a book move picked with probability proportional to its weight, or Move.NONE when the position is not in the
+    // book; bookMoves is the caller's buffer, left holding all the book moves of the position
+    public int probe(ChessMatch chessMatch, Random random, BookMoves bookMoves) {
+        int count = this.lookup(chessMatch, bookMoves);
+        if (count == 0) {
+            return Move.NONE;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += bookMoves.weights[i];
+        }
+        // all weights 0 means no preference
+        if (total == 0) {
+            return bookMoves.moves[random.nextInt(count)];
+        }
+        long pick = (long) (random.nextDouble() * total);
+        for (int i = 0; i < count; i++) {
+            pick -= bookMoves.weights[i];
+            if (pick < 0) {
+                return bookMoves.moves[i];
+            }
+        }
+        return bookMoves.moves[count - 1];
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    // the legal move a Polyglot move stands for, or Move.NONE
+    private static int decode(int bookMove, MoveList legalMoves) {
+        for (int i = 0; i < legalMoves.size(); i++) {
+            if (encode(legalMoves.get(i)) == bookMove) {
+                return legalMoves.get(i);
+            }
+        }
+        return Move.NONE;
+    }
+
+    // Polyglot squares count from a1 where ours count from a8; castling is written as the king taking its own rook and
+    // promotions number knight 1 to queen 4, the PieceType order
+    static int encode(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.flags(move) == Move.KING_CASTLE) {
+            to = from + 3;
+        } else if (Move.flags(move) == Move.QUEEN_CASTLE) {
+            to = from - 4;
+        }
+        int bookMove = (from ^ 56) << 6 | (to ^ 56);
+        if (Move.isPromotion(move)) {
+            bookMove |= Move.promotionType(move).ordinal() << 12;
+        }
+        return bookMove;
+    }
+
+    // the book moves found by a lookup with their weights; reused between probes, so a probe allocates nothing
+    public static class BookMoves {
+
+        private final int[] moves = new int[256];
+        private final int[] weights = new int[256];
+        private final MoveList legalMoves = new MoveList();
+        private int size;
+
+        public int size() {
+            return this.size;
+        }
+
+        public int getMove(int i) {
+            return this.moves[i];
+        }
+
+        public int getWeight(int i) {
+            return this.weights[i];
+        }
+    }
+
+    // usage: PolyglotBook <book.bin> [random64.txt]
+    // lists the book moves of the starting position and reports the time a probe takes; without a table file the
+    // bundled Random64 table is used
+    public static void main(String[] args) throws IOException {
+        PolyglotKeys keys = args.length > 1 ? PolyglotKeys.load(Paths.get(args[1])) : PolyglotKeys.standard();
+        try (PolyglotBook book = new PolyglotBook(Paths.get(args[0]), keys)) {
+            ChessMatch chessMatch = new ChessMatch();
+            BookMoves bookMoves = new BookMoves();
+            int count = book.lookup(chessMatch, bookMoves);
+            System.out.printf("entries %d  book moves %d%n", book.getEntryCount(), count);
+            for (int i = 0; i < count; i++) {
+                System.out.printf("%-6s weight %d%n", Move.toString(bookMoves.getMove(i)), bookMoves.getWeight(i));
+            }
+
+            int probes = 1000000;
+            Random random = new Random(1);
+            long played = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < probes; i++) {
+                if (book.probe(chessMatch, random, bookMoves) != Move.NONE) {
+                    played++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("probes %d  found %d  us/probe %.2f%n", probes, played, seconds * 1e6 / probes);
+        }
+    }
+}
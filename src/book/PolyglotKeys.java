@@ -0,0 +1,138 @@
+package book;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Color;
+import chess.PieceType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Position keys as Polyglot books compute them. They differ from ChessMatch.getPositionKey, whose random numbers are
+// our own: Polyglot XORs entries of its fixed Random64 table of 781 numbers, 768 for the pieces on the squares, 4 for
+// the castling rights, 8 for the en passant file and 1 for white to move. The table ships as polyglot-random64.txt
+// next to this class, the numbers in hex as in the Polyglot sources, and any table loaded is checked against the
+// published keys of the format's reference positions, which cover en passant and partial castling rights.
+public class PolyglotKeys {
+
+    private static final int CASTLING = 768;
+    private static final int EN_PASSANT = 772;
+    private static final int TURN = 780;
+    private static final int SIZE = 781;
+
+    // the reference positions of the Polyglot book format and their keys
+    private static final String[] REFERENCE_FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+            "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2",
+            "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3",
+            "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4",
+            "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3",
+            "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4"
+    };
+    private static final long[] REFERENCE_KEYS = {
+            0x463B96181691FC9CL, 0x823C9B50FD114196L, 0x0756B94461C50FB0L, 0x662FAFB965DB29D4L, 0x22A48B5A8E47FF78L,
+            0x652A607CA3F242C1L, 0x00FDD303C946BDD9L, 0x3C8123EA7B067637L, 0x5C3F9B829B279560L
+    };
+    private static final Pattern NUMBER = Pattern.compile("0[xX]([0-9a-fA-F]{1,16})");
+
+    private final long[] random;
+
+    public PolyglotKeys(long[] random) {
+        if (random.length != SIZE) {
+            throw new IllegalArgumentException("Polyglot table needs " + SIZE + " numbers, got " + random.length);
+        }
+        this.random = random.clone();
+    }
+
+    // the table in polyglot-random64.txt next to this class on the classpath
+    public static PolyglotKeys standard() throws IOException {
+        InputStream in = PolyglotKeys.class.getResourceAsStream("polyglot-random64.txt");
+        if (in == null) {
+            throw new IOException("polyglot-random64.txt not found on the classpath");
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.US_ASCII)) {
+            return read(reader);
+        }
+    }
+
+    public static PolyglotKeys load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            return read(reader);
+        }
+    }
+
+    private static PolyglotKeys read(Reader reader) throws IOException {
+        long[] random = new long[SIZE];
+        int count = 0;
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            Matcher matcher = NUMBER.matcher(line);
+            while (matcher.find()) {
+                if (count == SIZE) {
+                    throw new IOException("Polyglot table has more than " + SIZE + " numbers");
+                }
+                random[count++] = Long.parseUnsignedLong(matcher.group(1), 16);
+            }
+        }
+        if (count != SIZE) {
+            throw new IOException("Polyglot table has " + count + " numbers instead of " + SIZE);
+        }
+        PolyglotKeys keys = new PolyglotKeys(random);
+        for (int i = 0; i < REFERENCE_FENS.length; i++) {
+            if (keys.key(ChessMatch.fromFen(REFERENCE_FENS[i])) != REFERENCE_KEYS[i]) {
+                throw new IOException("Not the Polyglot Random64 table, the key of " + REFERENCE_FENS[i] + " does not match");
+            }
+        }
+        return keys;
+    }
+
+    public long key(ChessMatch chessMatch) {
+        ChessBoard board = chessMatch.getBoard();
+        long key = 0;
+        // Polyglot numbers pieces black pawn, white pawn, black knight, ... as the board does, and squares from a1,
+        // where ours start from a8
+        for (PieceType type : PieceType.values()) {
+            for (Color color : Color.values()) {
+                int base = 64 * (type.ordinal() * 2 + color.ordinal());
+                for (long pieces = board.getBitboard(type, color); pieces != 0; pieces &= pieces - 1) {
+                    key ^= this.random[base + (Long.numberOfTrailingZeros(pieces) ^ 56)];
+                }
+            }
+        }
+
+        // white king side, white queen side, black king side, black queen side, in the order of the castling bits
+        int castlingRights = chessMatch.getCastlingRights();
+        for (int i = 0; i < 4; i++) {
+            if ((castlingRights & 1 << i) != 0) {
+                key ^= this.random[CASTLING + i];
+            }
+        }
+
+        // like getPositionKey, the en passant file only counts when a pawn of the player to move can capture
+        int enPassantSquare = chessMatch.getEnPassantSquare();
+        if (enPassantSquare >= 0) {
+            Color player = chessMatch.getCurrentPlayer();
+            if ((Bitboards.pawnAttacks(player.opponent(), enPassantSquare) & board.getBitboard(PieceType.PAWN, player)) != 0) {
+                key ^= this.random[EN_PASSANT + Bitboards.column(enPassantSquare)];
+            }
+        }
+
+        if (chessMatch.getCurrentPlayer() == Color.WHITE) {
+            key ^= this.random[TURN];
+        }
+        return key;
+    }
+}
@@ -0,0 +1,121 @@
+package chess;
+
+// Squares are numbered row * 8 + column, using the same rows and columns as boardgame.Position
+// (square 0 is a8, square 63 is h1).
+public final class Bitboards {
+
+    private static final int[][] KNIGHT_OFFSETS = {{-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}, {1, 2}, {2, 1}, {2, -1}, {1, -2}};
+    private static final int[][] KING_OFFSETS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final int[][] WHITE_PAWN_OFFSETS = {{-1, -1}, {-1, 1}};
+    private static final int[][] BLACK_PAWN_OFFSETS = {{1, -1}, {1, 1}};
+
+    private static final long[] KNIGHT_ATTACKS = leaperAttacks(KNIGHT_OFFSETS);
+    private static final long[] KING_ATTACKS = leaperAttacks(KING_OFFSETS);
+    private static final long[][] PAWN_ATTACKS = new long[2][];
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        PAWN_ATTACKS[Color.WHITE.ordinal()] = leaperAttacks(WHITE_PAWN_OFFSETS);
+        PAWN_ATTACKS[Color.BLACK.ordinal()] = leaperAttacks(BLACK_PAWN_OFFSETS);
+        initLines();
+    }
+
+    private Bitboards() {
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    // squares a pawn of the given color on this square captures on
+    public static long pawnAttacks(Color color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    public static int square(int row, int column) {
+        return row * 8 + column;
+    }
+
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    public static int column(int square) {
+        return square & 7;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    // squares strictly between two squares on a common rank, file or diagonal, otherwise empty
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    // the full rank, file or diagonal through both squares, otherwise empty
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    public static boolean[][] toMatrix(long bitboard) {
+        boolean[][] mat = new boolean[8][8];
+        while (bitboard != 0) {
+            int square = Long.numberOfTrailingZeros(bitboard);
+            mat[row(square)][column(square)] = true;
+            bitboard &= bitboard - 1;
+        }
+        return mat;
+    }
+
+    private static long[] leaperAttacks(int[][] offsets) {
+        long[] table = new long[64];
+        for (int square = 0; square < 64; square++) {
+            for (int[] offset : offsets) {
+                int row = row(square) + offset[0];
+                int column = column(square) + offset[1];
+                if (row >= 0 && row < 8 && column >= 0 && column < 8) {
+                    table[square] |= bit(square(row, column));
+                }
+            }
+        }
+        return table;
+    }
+
+    private static void initLines() {
+        for (int from = 0; from < 64; from++) {
+            for (int[] d : KING_OFFSETS) {
+                long ray = 0L;
+                int row = row(from) + d[0];
+                int column = column(from) + d[1];
+                while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+                    int to = square(row, column);
+                    BETWEEN[from][to] = ray;
+                    ray |= bit(to);
+                    row += d[0];
+                    column += d[1];
+                }
+
+                long line = ray | bit(from);
+                row = row(from) - d[0];
+                column = column(from) - d[1];
+                while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+                    line |= bit(square(row, column));
+                    row -= d[0];
+                    column -= d[1];
+                }
+
+                while (ray != 0) {
+                    LINE[from][Long.numberOfTrailingZeros(ray)] = line;
+                    ray &= ray - 1;
+                }
+            }
+        }
+    }
+}
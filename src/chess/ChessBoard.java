@@ -0,0 +1,170 @@
+package chess;
+
+import boardgame.Board;
+import boardgame.Piece;
+import boardgame.Position;
+
+public class ChessBoard extends Board {
+
+    private final long[] bitboards = new long[12];
+    private final long[] colorOccupancy = new long[2];
+    private long occupancy;
+    private long zobristKey;
+    // Zobrist key of the pawns alone, for caches of pawn structure terms
+    private long pawnKey;
+
+    // material plus piece-square scores, white minus black, and the game phase, kept up to date piece by piece
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+
+    private final Position[] positions = new Position[64];
+
+    public ChessBoard() {
+        super(8, 8);
+        for (int square = 0; square < 64; square++) {
+            this.positions[square] = new Position(Bitboards.row(square), Bitboards.column(square));
+        }
+    }
+
+    @Override
+    public void placePiece(Piece piece, Position position) {
+        super.placePiece(piece, position);
+        this.toggle((ChessPiece) piece, square(position));
+    }
+
+    @Override
+    public Piece removePiece(Position position) {
+        Piece piece = super.removePiece(position);
+
+        if (piece != null) {
+            this.toggle((ChessPiece) piece, square(position));
+        }
+        return piece;
+    }
+
+    // unchecked fast paths for make/unmake, the caller guarantees the squares are valid and the target is empty
+    void putPiece(ChessPiece piece, int square) {
+        this.setPiece(piece, this.positions[square]);
+        this.toggle(piece, square);
+    }
+
+    ChessPiece takePiece(int square) {
+        ChessPiece piece = (ChessPiece) this.clearPiece(this.positions[square]);
+        this.toggle(piece, square);
+        return piece;
+    }
+
+    void movePiece(int from, int to) {
+        this.putPiece(this.takePiece(from), to);
+    }
+
+    public ChessPiece piece(int square) {
+        return (ChessPiece) this.pieceAt(Bitboards.row(square), Bitboards.column(square));
+    }
+
+    // shared Position instance for a square, used by the move probing hot paths instead of allocating a new one
+    public Position position(int square) {
+        return this.positions[square];
+    }
+
+    public long getBitboard(PieceType type, Color color) {
+        return this.bitboards[index(type, color)];
+    }
+
+    public long getOccupancy(Color color) {
+        return this.colorOccupancy[color.ordinal()];
+    }
+
+    public long getOccupancy() {
+        return this.occupancy;
+    }
+
+    // Zobrist key of the piece placement only, ChessMatch adds the side to move, castling and en passant
+    public long getZobristKey() {
+        return this.zobristKey;
+    }
+
+    public long getPawnKey() {
+        return this.pawnKey;
+    }
+
+    public int getMiddlegameScore() {
+        return this.middlegameScore;
+    }
+
+    public int getEndgameScore() {
+        return this.endgameScore;
+    }
+
+    public int getPhase() {
+        return this.phase;
+    }
+
+    public int kingSquare(Color color) {
+        long king = this.bitboards[index(PieceType.KING, color)];
+        if (king == 0) {
+            throw new IllegalStateException("There is no " + color + " king on the board");
+        }
+        return Long.numberOfTrailingZeros(king);
+    }
+
+    public boolean isSquareAttacked(int square, Color byColor) {
+        return this.isSquareAttacked(square, byColor, this.occupancy);
+    }
+
+    // same test against a hypothetical occupancy, e.g. with a moving king lifted off the board
+    public boolean isSquareAttacked(int square, Color byColor, long occupancy) {
+        long queens = this.getBitboard(PieceType.QUEEN, byColor);
+
+        // work backwards from the square: a piece of byColor attacks it if it stands on a square this piece type
+        // would attack from here
+        return (Bitboards.pawnAttacks(byColor.opponent(), square) & this.getBitboard(PieceType.PAWN, byColor)) != 0
+                || (Bitboards.knightAttacks(square) & this.getBitboard(PieceType.KNIGHT, byColor)) != 0
+                || (Bitboards.kingAttacks(square) & this.getBitboard(PieceType.KING, byColor)) != 0
+                || (Magics.bishopAttacks(square, occupancy) & (this.getBitboard(PieceType.BISHOP, byColor) | queens)) != 0
+                || (Magics.rookAttacks(square, occupancy) & (this.getBitboard(PieceType.ROOK, byColor) | queens)) != 0;
+    }
+
+    // every piece of either color attacking the square, given a board occupancy
+    public long attackersTo(int square, long occupancy) {
+        long queens = this.bitboards[index(PieceType.QUEEN, Color.WHITE)] | this.bitboards[index(PieceType.QUEEN, Color.BLACK)];
+        long rooks = this.bitboards[index(PieceType.ROOK, Color.WHITE)] | this.bitboards[index(PieceType.ROOK, Color.BLACK)];
+        long bishops = this.bitboards[index(PieceType.BISHOP, Color.WHITE)] | this.bitboards[index(PieceType.BISHOP, Color.BLACK)];
+        long knights = this.bitboards[index(PieceType.KNIGHT, Color.WHITE)] | this.bitboards[index(PieceType.KNIGHT, Color.BLACK)];
+        long kings = this.bitboards[index(PieceType.KING, Color.WHITE)] | this.bitboards[index(PieceType.KING, Color.BLACK)];
+
+        return (Bitboards.pawnAttacks(Color.BLACK, square) & this.bitboards[index(PieceType.PAWN, Color.WHITE)])
+                | (Bitboards.pawnAttacks(Color.WHITE, square) & this.bitboards[index(PieceType.PAWN, Color.BLACK)])
+                | (Bitboards.knightAttacks(square) & knights)
+                | (Bitboards.kingAttacks(square) & kings)
+                | (Magics.bishopAttacks(square, occupancy) & (bishops | queens))
+                | (Magics.rookAttacks(square, occupancy) & (rooks | queens));
+    }
+
+    public static int square(Position position) {
+        return Bitboards.square(position.getRow(), position.getColumn());
+    }
+
+    private void toggle(ChessPiece piece, int square) {
+        long bit = Bitboards.bit(square);
+        int index = index(piece.getType(), piece.getColor());
+        this.bitboards[index] ^= bit;
+        this.colorOccupancy[piece.getColor().ordinal()] ^= bit;
+        this.occupancy ^= bit;
+        this.zobristKey ^= Zobrist.piece(piece.getType(), piece.getColor(), square);
+        if (piece.getType() == PieceType.PAWN) {
+            this.pawnKey ^= Zobrist.piece(PieceType.PAWN, piece.getColor(), square);
+        }
+
+        // the bit is set now when the piece was placed, clear when it was taken away
+        int sign = (this.bitboards[index] & bit) != 0 ? 1 : -1;
+        this.middlegameScore += sign * PieceSquareTables.middlegame(index, square);
+        this.endgameScore += sign * PieceSquareTables.endgame(index, square);
+        this.phase += sign * PieceSquareTables.phase(index);
+    }
+
+    private static int index(PieceType type, Color color) {
+        return type.ordinal() * 2 + color.ordinal();
+    }
+}
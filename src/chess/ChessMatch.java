@@ -1,41 +1,168 @@
 package chess;
 
-import boardgame.Board;
-import boardgame.Piece;
 import boardgame.Position;
 import chess.pieces.*;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 public class ChessMatch {
 
-    private Integer turn;
+    public static final String STARTING_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+
+    // FEN piece letters in PieceType order, so setupFen does not clone values() for every piece it places
+    private static final String PIECE_LETTERS = "PNBRQK";
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    // castling rights kept after a move from or to a square: moving the king or a rook, or capturing a rook, loses them
+    private static final int[] CASTLING_MASKS = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASKS, WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASKS[Bitboards.square(7, 4)] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASKS[Bitboards.square(7, 7)] &= ~WHITE_KING_SIDE;
+        CASTLING_MASKS[Bitboards.square(7, 0)] &= ~WHITE_QUEEN_SIDE;
+        CASTLING_MASKS[Bitboards.square(0, 4)] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASKS[Bitboards.square(0, 7)] &= ~BLACK_KING_SIDE;
+        CASTLING_MASKS[Bitboards.square(0, 0)] &= ~BLACK_QUEEN_SIDE;
+    }
+
+    private int turn;
     private Color currentPlayer;
 
-    private final Board board;
+    private final ChessBoard board;
     private boolean check;
     private boolean checkMate;
 
-    private ChessPiece enPassantVulnerable;
-
-    private final List<Piece> piecesOnTheBoard = new ArrayList<>();
-    private final List<Piece> capturedPieces = new ArrayList<>();
+    private int castlingRights;
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
 
     private ChessPiece promoted;
 
+    private final MoveList legalMoves = new MoveList();
+
+    // undo stack, one entry per ply made with makeMove
+    private int ply;
+    private int[] undoMoves = new int[256];
+    private ChessPiece[] undoMovedPieces = new ChessPiece[256];
+    private ChessPiece[] undoCapturedPieces = new ChessPiece[256];
+    private int[] undoCastlingRights = new int[256];
+    private int[] undoEnPassantSquares = new int[256];
+    private int[] undoHalfmoveClocks = new int[256];
+
 
     public ChessMatch() {
-        this.board = new Board(8, 8);
+        this.board = new ChessBoard();
         this.turn = 1;
         this.currentPlayer = Color.WHITE;
+        this.castlingRights = WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE;
 
         this.initialSetup();
     }
 
-    public Board getBoard() {
+    private ChessMatch(ChessBoard board) {
+        this.board = board;
+        this.turn = 1;
+        this.currentPlayer = Color.WHITE;
+    }
+
+    // independent copy of the current position, e.g. for another thread to search. The copy starts with an empty undo
+    // stack, so it cannot take back moves made before it was taken.
+    public ChessMatch copy() {
+        ChessMatch copy = new ChessMatch(new ChessBoard());
+        long pieces = this.board.getOccupancy();
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece p = this.board.piece(square);
+            ChessPiece piece = copy.newPiece(p.getType(), p.getColor());
+            piece.setMoveCount(p.getMoveCount());
+            copy.board.putPiece(piece, square);
+        }
+
+        copy.turn = this.turn;
+        copy.currentPlayer = this.currentPlayer;
+        copy.check = this.check;
+        copy.checkMate = this.checkMate;
+        copy.castlingRights = this.castlingRights;
+        copy.enPassantSquare = this.enPassantSquare;
+        copy.halfmoveClock = this.halfmoveClock;
+        return copy;
+    }
+
+    // sets up a position from a FEN string; the halfmove clock and fullmove number may be left out
+    public static ChessMatch fromFen(String fen) {
+        ChessMatch chessMatch = new ChessMatch(new ChessBoard());
+        chessMatch.setupFen(fen);
+        return chessMatch;
+    }
+
+    // replaces the position of this match with the FEN one, reusing the board and the undo stack
+    public void load(String fen) {
+        long pieces = this.board.getOccupancy();
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            this.board.takePiece(square);
+        }
+
+        this.turn = 1;
+        this.currentPlayer = Color.WHITE;
+        this.check = false;
+        this.checkMate = false;
+        this.castlingRights = 0;
+        this.enPassantSquare = -1;
+        this.halfmoveClock = 0;
+        this.promoted = null;
+        this.ply = 0;
+        this.setupFen(fen);
+    }
+
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                ChessPiece piece = this.board.piece(Bitboards.square(row, column));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char symbol = "PNBRQK".charAt(piece.getType().ordinal());
+                fen.append(piece.getColor() == Color.WHITE ? symbol : Character.toLowerCase(symbol));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row < 7) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(this.currentPlayer == Color.WHITE ? " w " : " b ");
+        if (this.castlingRights == 0) {
+            fen.append('-');
+        }
+        for (int i = 0; i < 4; i++) {
+            if ((this.castlingRights & 1 << i) != 0) {
+                fen.append("KQkq".charAt(i));
+            }
+        }
+        fen.append(' ').append(this.enPassantSquare >= 0 ? Move.squareName(this.enPassantSquare) : "-");
+        fen.append(' ').append(this.halfmoveClock).append(' ').append((this.turn + 1) / 2);
+        return fen.toString();
+    }
+
+    public ChessBoard getBoard() {
         return this.board;
     }
 
@@ -67,40 +194,21 @@ public class ChessMatch {
         this.validateSourcePosition(source);
         this.validateTargetPosition(source, target);
 
-        Piece capturedPiece = makeMove(source, target);
-
-        if (this.testCheck(this.currentPlayer)) {
-            this.undoMove(source, target, capturedPiece);
+        int move = this.findLegalMove(ChessBoard.square(source), ChessBoard.square(target));
+        if (move == Move.NONE) {
             throw new ChessException("You can't put yourself in check");
         }
 
-        ChessPiece movedPiece = (ChessPiece) board.piece(target);
-
-        // special move promotion
-        this.promoted = null;
-        if (movedPiece instanceof Pawn) {
-            if (movedPiece.getColor() == Color.WHITE && target.getRow() == 0 || movedPiece.getColor() == Color.BLACK && target.getRow() == 7) {
-                this.promoted = (ChessPiece) board.piece(target);
-                this.promoted = replacePromotedPiece("Q");
-            }
-        }
-
-        check = this.testCheck(this.opponent(currentPlayer));
+        this.makeMove(move);
+        ChessPiece capturedPiece = this.undoCapturedPieces[this.ply - 1];
 
-        if (this.testCheckMate(this.opponent(this.currentPlayer))) {
-            this.checkMate = true;
-        } else {
-            this.nextTurn();
-        }
+        // special move promotion, the pawn was promoted to a queen and may still be replaced
+        this.promoted = Move.isPromotion(move) ? this.board.piece(Move.to(move)) : null;
 
-        // special move en passant
-        if (movedPiece instanceof Pawn && (target.getRow() == source.getRow() - 2 || target.getRow() == source.getRow() + 2)) {
-            this.enPassantVulnerable = movedPiece;
-        } else {
-            this.enPassantVulnerable = null;
-        }
+        this.check = this.testCheck(this.currentPlayer);
+        this.checkMate = this.testCheckMate(this.currentPlayer);
 
-        return (ChessPiece) capturedPiece;
+        return capturedPiece;
     }
 
     public ChessPiece replacePromotedPiece(String type) {
@@ -112,12 +220,15 @@ public class ChessMatch {
         }
 
         Position pos = this.promoted.getChessPosition().toPosition();
-        Piece p = this.board.removePiece(pos);
-        this.piecesOnTheBoard.remove(p);
+        this.board.removePiece(pos);
 
         ChessPiece newPiece = newPiece(type, this.promoted.getColor());
         this.board.placePiece(newPiece, pos);
-        this.piecesOnTheBoard.add(newPiece);
+
+        // keep the recorded move in line with the piece actually on the board
+        int last = this.undoMoves[this.ply - 1];
+        int flags = (Move.flags(last) & Move.CAPTURE) | promotionFlag(newPiece.getType());
+        this.undoMoves[this.ply - 1] = Move.of(Move.from(last), Move.to(last), flags);
 
         return newPiece;
     }
@@ -129,101 +240,130 @@ public class ChessMatch {
         return new Rook(this.board, color);
     }
 
-    private Piece makeMove(Position source, Position target) {
-        ChessPiece p = (ChessPiece) this.board.removePiece(source);
-        p.increaseMoveCount();
-        Piece capturedPiece = this.board.removePiece(target);
+    private ChessPiece newPiece(PieceType type, Color color) {
+        if (type == PieceType.PAWN) return new Pawn(this.board, color, this);
+        if (type == PieceType.KING) return new King(this.board, color, this);
+        if (type == PieceType.BISHOP) return new Bishop(this.board, color);
+        if (type == PieceType.KNIGHT) return new Knight(this.board, color);
+        if (type == PieceType.QUEEN) return new Queen(this.board, color);
+        return new Rook(this.board, color);
+    }
 
-        this.board.placePiece(p, target);
+    private static int promotionFlag(PieceType type) {
+        if (type == PieceType.BISHOP) return Move.BISHOP_PROMOTION;
+        if (type == PieceType.KNIGHT) return Move.KNIGHT_PROMOTION;
+        if (type == PieceType.QUEEN) return Move.QUEEN_PROMOTION;
+        return Move.ROOK_PROMOTION;
+    }
 
-        if (capturedPiece != null) {
-            this.piecesOnTheBoard.remove(capturedPiece);
-            this.capturedPieces.add(capturedPiece);
-        }
-
-        // special move castling king side move
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            this.board.placePiece(rook, targetT);
-            rook.increaseMoveCount();
-        }
-
-        // special move castling queen side move
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            this.board.placePiece(rook, targetT);
-            rook.increaseMoveCount();
-        }
-
-        // special move en passant
-        if (p instanceof Pawn) {
-            if (!Objects.equals(source.getColumn(), target.getColumn()) && capturedPiece == null) {
-                Position pawnPosition;
-                if (p.getColor() == Color.WHITE) {
-                    pawnPosition = new Position(target.getRow() + 1, target.getColumn());
-                } else {
-                    pawnPosition = new Position(target.getRow() - 1, target.getColumn());
-                }
-                capturedPiece = this.board.removePiece(pawnPosition);
-                this.capturedPieces.add(capturedPiece);
-                this.piecesOnTheBoard.remove(capturedPiece);
-            }
+    // plays a legal move, as produced by MoveGenerator, and pushes what is needed to take it back on the undo stack
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+
+        if (this.ply == this.undoMoves.length) {
+            this.growUndoStack();
+        }
+        ChessPiece p = this.board.piece(from);
+        this.undoMoves[this.ply] = move;
+        this.undoMovedPieces[this.ply] = p;
+        this.undoCastlingRights[this.ply] = this.castlingRights;
+        this.undoEnPassantSquares[this.ply] = this.enPassantSquare;
+        this.undoHalfmoveClocks[this.ply] = this.halfmoveClock;
+
+        ChessPiece capturedPiece = null;
+        if (flags == Move.EN_PASSANT) {
+            // special move en passant
+            capturedPiece = this.board.takePiece(p.getColor() == Color.WHITE ? to + 8 : to - 8);
+        } else if ((flags & Move.CAPTURE) != 0) {
+            capturedPiece = this.board.takePiece(to);
         }
+        this.undoCapturedPieces[this.ply] = capturedPiece;
 
+        this.board.movePiece(from, to);
+        p.increaseMoveCount();
 
-        return capturedPiece;
-    }
+        if ((flags & Move.KNIGHT_PROMOTION) != 0) {
+            // special move promotion
+            this.board.takePiece(to);
+            this.board.putPiece(this.newPiece(Move.promotionType(move), p.getColor()), to);
+        } else if (flags == Move.KING_CASTLE) {
+            // special move castling king side move
+            this.board.movePiece(to + 1, to - 1);
+            this.board.piece(to - 1).increaseMoveCount();
+        } else if (flags == Move.QUEEN_CASTLE) {
+            // special move castling queen side move
+            this.board.movePiece(to - 2, to + 1);
+            this.board.piece(to + 1).increaseMoveCount();
+        }
 
-    private void undoMove(Position source, Position target, Piece capturedPiece) {
-        ChessPiece p = (ChessPiece) this.board.removePiece(target);
-        p.decreaseMoveCount();
+        this.castlingRights &= CASTLING_MASKS[from] & CASTLING_MASKS[to];
+        this.enPassantSquare = flags == Move.DOUBLE_PAWN_PUSH ? (from + to) / 2 : -1;
+        this.halfmoveClock = p instanceof Pawn || capturedPiece != null ? 0 : this.halfmoveClock + 1;
 
-        this.board.placePiece(p, source);
+        this.ply++;
+        this.nextTurn();
+    }
 
-        if (capturedPiece != null) {
-            this.board.placePiece(capturedPiece, target);
-            this.capturedPieces.remove(capturedPiece);
-            this.piecesOnTheBoard.add(capturedPiece);
+    // takes back the last move made with makeMove
+    public void undoMove() {
+        this.ply--;
+        this.turn--;
+        this.currentPlayer = this.currentPlayer.opponent();
+
+        int move = this.undoMoves[this.ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        ChessPiece p = this.undoMovedPieces[this.ply];
+
+        if ((flags & Move.KNIGHT_PROMOTION) != 0) {
+            this.board.takePiece(to);
+            this.board.putPiece(p, to);
+        } else if (flags == Move.KING_CASTLE) {
+            this.board.movePiece(to - 1, to + 1);
+            this.board.piece(to + 1).decreaseMoveCount();
+        } else if (flags == Move.QUEEN_CASTLE) {
+            this.board.movePiece(to + 1, to - 2);
+            this.board.piece(to - 2).decreaseMoveCount();
         }
 
+        this.board.movePiece(to, from);
+        p.decreaseMoveCount();
 
-        // special move castling king side move
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            this.board.placePiece(rook, sourceT);
-            rook.decreaseMoveCount();
+        ChessPiece capturedPiece = this.undoCapturedPieces[this.ply];
+        if (capturedPiece != null) {
+            this.board.putPiece(capturedPiece, flags == Move.EN_PASSANT ? (p.getColor() == Color.WHITE ? to + 8 : to - 8) : to);
+            this.undoCapturedPieces[this.ply] = null;
         }
+        this.undoMovedPieces[this.ply] = null;
 
-        // special move castling queen side move
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            this.board.placePiece(rook, sourceT);
-            rook.decreaseMoveCount();
-        }
+        this.castlingRights = this.undoCastlingRights[this.ply];
+        this.enPassantSquare = this.undoEnPassantSquares[this.ply];
+        this.halfmoveClock = this.undoHalfmoveClocks[this.ply];
+    }
 
-        // special move en passant
-        if (p instanceof Pawn) {
-            if (!Objects.equals(source.getColumn(), target.getColumn()) && capturedPiece == this.enPassantVulnerable) {
-                ChessPiece pawn = (ChessPiece) board.removePiece(target);
-                Position pawnPosition;
-                if (p.getColor() == Color.WHITE) {
-                    pawnPosition = new Position(3, target.getColumn());
-                } else {
-                    pawnPosition = new Position(4, target.getColumn());
-                }
+    private void growUndoStack() {
+        int capacity = this.undoMoves.length * 2;
+        this.undoMoves = Arrays.copyOf(this.undoMoves, capacity);
+        this.undoMovedPieces = Arrays.copyOf(this.undoMovedPieces, capacity);
+        this.undoCapturedPieces = Arrays.copyOf(this.undoCapturedPieces, capacity);
+        this.undoCastlingRights = Arrays.copyOf(this.undoCastlingRights, capacity);
+        this.undoEnPassantSquares = Arrays.copyOf(this.undoEnPassantSquares, capacity);
+        this.undoHalfmoveClocks = Arrays.copyOf(this.undoHalfmoveClocks, capacity);
+    }
 
-                this.board.placePiece(pawn, pawnPosition);
+    // the legal move from one square to another, queen promotion first, or Move.NONE
+    private int findLegalMove(int from, int to) {
+        MoveGenerator.generateLegalMoves(this, this.legalMoves);
+        for (int i = 0; i < this.legalMoves.size(); i++) {
+            int move = this.legalMoves.get(i);
+            if (Move.from(move) == from && Move.to(move) == to) {
+                return move;
             }
         }
-
+        return Move.NONE;
     }
 
     private void validateSourcePosition(Position position) {
@@ -252,66 +392,135 @@ public class ChessMatch {
     }
 
 
-    private Color opponent(Color color) {
-        return (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
+    // check and checkmate tests for the player to move
+    public boolean testCheck() {
+        return this.testCheck(this.currentPlayer);
     }
 
-    private ChessPiece king(Color color) {
-        List<Piece> list = this.piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-            if (p instanceof King) {
-                return (ChessPiece) p;
-            }
-        }
-        throw new IllegalStateException("There is no " + color + " king on the board");
+    public boolean testCheckMate() {
+        return this.testCheckMate(this.currentPlayer);
     }
 
-
     private boolean testCheckMate(Color color) {
-        if (!this.testCheck(color)) {
-            return false;
-        }
-        List<Piece> list = this.piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-
-        for (Piece p : list) {
-            boolean[][] mat = p.possibleMoves();
-            for (int i = 0; i < this.board.getRows(); i++) {
-                for (int j = 0; j < this.board.getColumns(); j++) {
-                    if (mat[i][j]) {
-                        Position source = ((ChessPiece) p).getChessPosition().toPosition();
-                        Position target = new Position(i, j);
-                        Piece capturedPiece = makeMove(source, target);
-
-                        boolean testCheck = this.testCheck(color);
-                        this.undoMove(source, target, capturedPiece);
-
-                        if (!testCheck) {
-                            return false;
-                        }
+        return this.testCheck(color) && MoveGenerator.generateLegalMoves(this, color, this.legalMoves) == 0;
+    }
+
+
+    private boolean testCheck(Color color) {
+        return this.board.isSquareAttacked(this.board.kingSquare(color), color.opponent());
+    }
+
+
+    private void placeNewPiece(Character column, Integer row, ChessPiece piece) {
+        this.board.placePiece(piece, new ChessPosition(column, row).toPosition());
+    }
+
+    // parses straight into the board by square, the setup path for suites and bulk jobs
+    private void setupFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (fields.length < 4 || rows.length != 8) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+
+        for (int row = 0; row < 8; row++) {
+            int column = 0;
+            for (int i = 0; i < rows[row].length(); i++) {
+                char c = rows[row].charAt(i);
+                if (c >= '1' && c <= '8') {
+                    column += c - '0';
+                } else {
+                    if (column > 7) {
+                        throw new ChessException("Invalid FEN: " + fen);
                     }
+                    this.board.putPiece(this.newPiece(c), Bitboards.square(row, column));
+                    column++;
                 }
             }
+            if (column != 8) {
+                throw new ChessException("Invalid FEN: " + fen);
+            }
+        }
+        if (Long.bitCount(this.board.getBitboard(PieceType.KING, Color.WHITE)) != 1 || Long.bitCount(this.board.getBitboard(PieceType.KING, Color.BLACK)) != 1) {
+            throw new ChessException("Invalid FEN, each side needs exactly one king: " + fen);
+        }
+        // move generation steps pawns forward without bounds checks, a pawn on the first or last rank would wrap around
+        long pawns = this.board.getBitboard(PieceType.PAWN, Color.WHITE) | this.board.getBitboard(PieceType.PAWN, Color.BLACK);
+        if ((pawns & (0xFFL | 0xFFL << 56)) != 0) {
+            throw new ChessException("Invalid FEN, pawn on the first or last rank: " + fen);
         }
-        return true;
-    }
 
+        if (fields[1].equals("b")) {
+            this.currentPlayer = Color.BLACK;
+        } else if (!fields[1].equals("w")) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
 
-    private boolean testCheck(Color color) {
-        Position kingPosition = king(color).getChessPosition().toPosition();
-        List<Piece> opponentPieces = piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == opponent(color)).collect(Collectors.toList());
-        for (Piece p : opponentPieces) {
-            boolean[][] mat = p.possibleMoves();
-            if (mat[kingPosition.getRow()][kingPosition.getColumn()]) {
-                return true;
+        if (!fields[2].equals("-")) {
+            for (int i = 0; i < fields[2].length(); i++) {
+                int index = "KQkq".indexOf(fields[2].charAt(i));
+                if (index < 0) {
+                    throw new ChessException("Invalid FEN: " + fen);
+                }
+                this.castlingRights |= 1 << index;
+            }
+            // a right needs its king and rook on their home squares
+            for (int index = 0; index < 4; index++) {
+                Color color = index < 2 ? Color.WHITE : Color.BLACK;
+                int row = color == Color.WHITE ? 7 : 0;
+                if ((this.castlingRights & 1 << index) != 0
+                        && ((this.board.getBitboard(PieceType.KING, color) & Bitboards.bit(Bitboards.square(row, 4))) == 0
+                        || (this.board.getBitboard(PieceType.ROOK, color) & Bitboards.bit(Bitboards.square(row, index % 2 == 0 ? 7 : 0))) == 0)) {
+                    throw new ChessException("Invalid FEN, castling right without king and rook at home: " + fen);
+                }
             }
         }
-        return false;
-    }
 
+        if (!fields[3].equals("-")) {
+            char column = fields[3].charAt(0);
+            char rank = fields[3].length() == 2 ? fields[3].charAt(1) : ' ';
+            if (column < 'a' || column > 'h' || rank != (this.currentPlayer == Color.WHITE ? '6' : '3')) {
+                throw new ChessException("Invalid FEN: " + fen);
+            }
+            int square = Bitboards.square('8' - rank, column - 'a');
+            // the pawn that just advanced two squares stands in front of the square, which it and the square it came
+            // from have left empty
+            int forward = this.currentPlayer == Color.WHITE ? 8 : -8;
+            long occupancy = this.board.getOccupancy();
+            if ((this.board.getBitboard(PieceType.PAWN, this.currentPlayer.opponent()) & Bitboards.bit(square + forward)) == 0
+                    || (occupancy & (Bitboards.bit(square) | Bitboards.bit(square - forward))) != 0) {
+                throw new ChessException("Invalid FEN, no pawn can have just passed the en passant square: " + fen);
+            }
+            this.enPassantSquare = square;
+        }
+
+        // the move counters are optional, many EPD style strings leave them out
+        try {
+            this.halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+            int fullmove = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+            if (this.halfmoveClock < 0 || fullmove < 1) {
+                throw new ChessException("Invalid FEN: " + fen);
+            }
+            this.turn = 2 * fullmove - (this.currentPlayer == Color.WHITE ? 1 : 0);
+        } catch (NumberFormatException e) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+
+        // the player who just moved cannot have left the king in check, the generator would offer to capture it
+        if (this.testCheck(this.currentPlayer.opponent())) {
+            throw new ChessException("Invalid FEN, the side not to move is in check: " + fen);
+        }
 
-    private void placeNewPiece(Character column, Integer row, ChessPiece piece) {
-        this.board.placePiece(piece, new ChessPosition(column, row).toPosition());
-        this.piecesOnTheBoard.add(piece);
+        this.check = this.testCheck(this.currentPlayer);
+        this.checkMate = this.testCheckMate(this.currentPlayer);
+    }
+
+    private ChessPiece newPiece(char symbol) {
+        int type = PIECE_LETTERS.indexOf(Character.toUpperCase(symbol));
+        if (type < 0) {
+            throw new ChessException("Invalid FEN piece: " + symbol);
+        }
+        return this.newPiece(PIECE_TYPES[type], Character.isUpperCase(symbol) ? Color.WHITE : Color.BLACK);
     }
 
     private void initialSetup() {
@@ -350,7 +559,7 @@ public class ChessMatch {
         this.placeNewPiece('h', 7, new Pawn(board, Color.BLACK, this));
     }
 
-    public Integer getTurn() {
+    public int getTurn() {
         return this.turn;
     }
 
@@ -365,7 +574,39 @@ public class ChessMatch {
 
 
     public ChessPiece getEnPassantVulnerable() {
-        return this.enPassantVulnerable;
+        if (this.enPassantSquare < 0) {
+            return null;
+        }
+        return this.board.piece(this.currentPlayer == Color.WHITE ? this.enPassantSquare + 8 : this.enPassantSquare - 8);
+    }
+
+    // square behind a pawn that just advanced two squares, or -1
+    public int getEnPassantSquare() {
+        return this.enPassantSquare;
+    }
+
+    // 64-bit Zobrist key of the position. The piece part is kept up to date by the board on every placement, the rest
+    // costs a few XORs. The en passant file only counts when a pawn can actually capture, so transpositions match.
+    public long getPositionKey() {
+        long key = this.board.getZobristKey() ^ Zobrist.castling(this.castlingRights);
+        if (this.currentPlayer == Color.BLACK) {
+            key ^= Zobrist.blackToMove();
+        }
+        if (this.enPassantSquare >= 0) {
+            long capturers = Bitboards.pawnAttacks(this.currentPlayer.opponent(), this.enPassantSquare) & this.board.getBitboard(PieceType.PAWN, this.currentPlayer);
+            if (capturers != 0) {
+                key ^= Zobrist.enPassantFile(Bitboards.column(this.enPassantSquare));
+            }
+        }
+        return key;
+    }
+
+    public int getCastlingRights() {
+        return this.castlingRights;
+    }
+
+    public int getHalfmoveClock() {
+        return this.halfmoveClock;
     }
 
     public ChessPiece getPromoted() {
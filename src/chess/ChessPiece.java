@@ -1,19 +1,43 @@
 package chess;
 
-import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
 
 public abstract class ChessPiece extends Piece {
     private final Color color;
-    private Integer moveCount = 0;
+    private int moveCount = 0;
 
 
-    public ChessPiece(Board board, Color color) {
+    public ChessPiece(ChessBoard board, Color color) {
         super(board);
         this.color = color;
     }
 
+    @Override
+    protected ChessBoard getBoard() {
+        return (ChessBoard) super.getBoard();
+    }
+
+    public abstract PieceType getType();
+
+    // all target squares of this piece as a bitboard, see Bitboards for the square numbering
+    public abstract long possibleMovesMask();
+
+    @Override
+    public boolean[][] possibleMoves() {
+        return Bitboards.toMatrix(this.possibleMovesMask());
+    }
+
+    @Override
+    public boolean possibleMove(Position position) {
+        return (this.possibleMovesMask() & Bitboards.bit(ChessBoard.square(position))) != 0;
+    }
+
+    @Override
+    public boolean isThereAnyPossibleMove() {
+        return this.possibleMovesMask() != 0;
+    }
+
     public Color getColor() {
         return this.color;
     }
@@ -26,10 +50,18 @@ public abstract class ChessPiece extends Piece {
         this.moveCount--;
     }
 
-    public Integer getMoveCount() {
+    void setMoveCount(int moveCount) {
+        this.moveCount = moveCount;
+    }
+
+    public int getMoveCount() {
         return this.moveCount;
     }
 
+    public int getSquare() {
+        return ChessBoard.square(this.position);
+    }
+
     public ChessPosition getChessPosition() {
         return ChessPosition.fromPosition(position);
     }
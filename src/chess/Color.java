@@ -3,4 +3,8 @@ package chess;
 public enum Color {
     BLACK,
     WHITE;
+
+    public Color opponent() {
+        return this == WHITE ? BLACK : WHITE;
+    }
 }
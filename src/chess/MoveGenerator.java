@@ -0,0 +1,197 @@
+package chess;
+
+// Legal move generation. Checkers and pinned pieces are computed once per position, so every emitted move is legal
+// without making it and testing for check.
+public final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+    // fills the list with every legal move for the player to move and returns the number of moves
+    public static int generateLegalMoves(ChessMatch chessMatch, MoveList moves) {
+        return generate(chessMatch, chessMatch.getCurrentPlayer(), moves, true, true);
+    }
+
+    // only the legal captures, en passant captures and promotions, the moves a search wants to try first
+    public static int generateCaptures(ChessMatch chessMatch, MoveList moves) {
+        return generate(chessMatch, chessMatch.getCurrentPlayer(), moves, true, false);
+    }
+
+    // the legal moves left out by generateCaptures
+    public static int generateQuietMoves(ChessMatch chessMatch, MoveList moves) {
+        return generate(chessMatch, chessMatch.getCurrentPlayer(), moves, false, true);
+    }
+
+    static int generateLegalMoves(ChessMatch chessMatch, Color color, MoveList moves) {
+        return generate(chessMatch, color, moves, true, true);
+    }
+
+    private static int generate(ChessMatch chessMatch, Color color, MoveList moves, boolean captures, boolean quiets) {
+        moves.clear();
+        ChessBoard board = chessMatch.getBoard();
+        Color opponent = color.opponent();
+        long occupancy = board.getOccupancy();
+        long own = board.getOccupancy(color);
+        long opponents = board.getOccupancy(opponent);
+        int king = board.kingSquare(color);
+        long allowed = (captures ? opponents : 0L) | (quiets ? ~occupancy : 0L);
+
+        // the king is lifted off the board, so it cannot shelter behind its own square from a slider
+        long targets = Bitboards.kingAttacks(king) & allowed;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (!board.isSquareAttacked(to, opponent, occupancy ^ Bitboards.bit(king))) {
+                addMove(moves, king, to, opponents);
+            }
+        }
+
+        long checkers = board.attackersTo(king, occupancy) & opponents;
+        if (Long.bitCount(checkers) > 1) {
+            // double check, only the king can move
+            return moves.size();
+        }
+
+        // when in check every other move has to capture the checker or block it
+        long checkMask = checkers == 0 ? ~0L : checkers | Bitboards.between(king, Long.numberOfTrailingZeros(checkers));
+        long pinned = pinnedPieces(board, color, king, occupancy, own);
+
+        // special move castling, the king works out the rook and attacked square conditions
+        if (quiets && checkers == 0 && Bitboards.column(king) == 4) {
+            long castling = board.piece(king).possibleMovesMask();
+            if ((castling & Bitboards.bit(king + 2)) != 0) {
+                moves.add(Move.of(king, king + 2, Move.KING_CASTLE));
+            }
+            if ((castling & Bitboards.bit(king - 2)) != 0) {
+                moves.add(Move.of(king, king - 2, Move.QUEEN_CASTLE));
+            }
+        }
+
+        generatePawnMoves(chessMatch, color, moves, king, checkMask, pinned, captures, quiets);
+
+        long pieces = board.getBitboard(PieceType.KNIGHT, color) & ~pinned;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            addMoves(moves, from, Bitboards.knightAttacks(from) & allowed & checkMask, opponents);
+        }
+
+        long queens = board.getBitboard(PieceType.QUEEN, color);
+        pieces = board.getBitboard(PieceType.BISHOP, color) | queens;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            targets = Magics.bishopAttacks(from, occupancy) & allowed & checkMask;
+            addMoves(moves, from, pin(targets, from, king, pinned), opponents);
+        }
+
+        pieces = board.getBitboard(PieceType.ROOK, color) | queens;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            targets = Magics.rookAttacks(from, occupancy) & allowed & checkMask;
+            addMoves(moves, from, pin(targets, from, king, pinned), opponents);
+        }
+
+        return moves.size();
+    }
+
+    // promotions count as captures, whether they take a piece or not
+    private static void generatePawnMoves(ChessMatch chessMatch, Color color, MoveList moves, int king, long checkMask, long pinned,
+                                          boolean captures, boolean quiets) {
+        ChessBoard board = chessMatch.getBoard();
+        long occupancy = board.getOccupancy();
+        long opponents = board.getOccupancy(color.opponent());
+        int forward = color == Color.WHITE ? -8 : 8;
+        int startRow = color == Color.WHITE ? 6 : 1;
+        int promotionRow = color == Color.WHITE ? 0 : 7;
+
+        int enPassant = chessMatch.getEnPassantSquare();
+        if (!captures || enPassant >= 0 && Bitboards.row(enPassant) != (color == Color.WHITE ? 2 : 5)) {
+            enPassant = -1;
+        }
+
+        long pawns = board.getBitboard(PieceType.PAWN, color);
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+
+            long pushes = 0L;
+            int to = from + forward;
+            if ((occupancy & Bitboards.bit(to)) == 0) {
+                pushes |= Bitboards.bit(to);
+                if (Bitboards.row(from) == startRow && (occupancy & Bitboards.bit(to + forward)) == 0) {
+                    pushes |= Bitboards.bit(to + forward);
+                }
+            }
+            long targets = captures ? Bitboards.pawnAttacks(color, from) & opponents : 0L;
+            if (Bitboards.row(to) == promotionRow ? captures : quiets) {
+                targets |= pushes;
+            }
+            targets = pin(targets & checkMask, from, king, pinned);
+
+            while (targets != 0) {
+                to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                int flags = (opponents & Bitboards.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET;
+
+                if (Bitboards.row(to) == promotionRow) {
+                    moves.add(Move.of(from, to, flags | Move.QUEEN_PROMOTION));
+                    moves.add(Move.of(from, to, flags | Move.KNIGHT_PROMOTION));
+                    moves.add(Move.of(from, to, flags | Move.ROOK_PROMOTION));
+                    moves.add(Move.of(from, to, flags | Move.BISHOP_PROMOTION));
+                } else if (Math.abs(to - from) == 16) {
+                    moves.add(Move.of(from, to, Move.DOUBLE_PAWN_PUSH));
+                } else {
+                    moves.add(Move.of(from, to, flags));
+                }
+            }
+
+            // special move en passant: two pieces leave the row at once, so pins and checks are tested on the
+            // resulting occupancy instead of with the masks
+            if (enPassant >= 0 && (Bitboards.pawnAttacks(color, from) & Bitboards.bit(enPassant)) != 0) {
+                int captured = enPassant - forward;
+                long after = (occupancy ^ Bitboards.bit(from) ^ Bitboards.bit(captured)) | Bitboards.bit(enPassant);
+                if ((board.attackersTo(king, after) & opponents & ~Bitboards.bit(captured)) == 0) {
+                    moves.add(Move.of(from, enPassant, Move.EN_PASSANT));
+                }
+            }
+        }
+    }
+
+    // own pieces standing alone between the king and an opponent slider
+    private static long pinnedPieces(ChessBoard board, Color color, int king, long occupancy, long own) {
+        Color opponent = color.opponent();
+        long queens = board.getBitboard(PieceType.QUEEN, opponent);
+        long snipers = (Magics.rookAttacks(king, 0L) & (board.getBitboard(PieceType.ROOK, opponent) | queens))
+                | (Magics.bishopAttacks(king, 0L) & (board.getBitboard(PieceType.BISHOP, opponent) | queens));
+
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.between(king, sniper) & occupancy;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & own;
+            }
+        }
+        return pinned;
+    }
+
+    // a pinned piece may only move along the line through its king
+    private static long pin(long targets, int from, int king, long pinned) {
+        return (pinned & Bitboards.bit(from)) == 0 ? targets : targets & Bitboards.line(king, from);
+    }
+
+    private static void addMoves(MoveList moves, int from, long targets, long opponents) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            addMove(moves, from, to, opponents);
+        }
+    }
+
+    private static void addMove(MoveList moves, int from, int to, long opponents) {
+        moves.add(Move.of(from, to, (opponents & Bitboards.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET));
+    }
+}
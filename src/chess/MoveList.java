@@ -0,0 +1,41 @@
+package chess;
+
+// Reusable move buffer, so move generation does not allocate. 256 is above the maximum number of legal moves (218).
+public class MoveList {
+
+    private final int[] moves = new int[256];
+    private int size;
+
+    public void add(int move) {
+        this.moves[this.size++] = move;
+    }
+
+    public int get(int index) {
+        return this.moves[index];
+    }
+
+    public void set(int index, int move) {
+        this.moves[index] = move;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int[] getMoves() {
+        return this.moves;
+    }
+}
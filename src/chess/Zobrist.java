@@ -0,0 +1,57 @@
+package chess;
+
+// Random keys for Zobrist hashing: a position key is the XOR of the keys of everything in it, so a move updates the key
+// with a handful of XORs instead of a rehash.
+public final class Zobrist {
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long SIDE;
+
+    // fixed seed, so keys are stable across runs and machines
+    private static long seed = 0x9E3779B97F4A7C15L;
+
+    static {
+        for (long[] keys : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = nextRandom();
+            }
+        }
+        for (int i = 0; i < CASTLING.length; i++) {
+            CASTLING[i] = nextRandom();
+        }
+        CASTLING[0] = 0L;
+        for (int i = 0; i < EN_PASSANT_FILE.length; i++) {
+            EN_PASSANT_FILE[i] = nextRandom();
+        }
+        SIDE = nextRandom();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(PieceType type, Color color, int square) {
+        return PIECE_SQUARE[type.ordinal() * 2 + color.ordinal()][square];
+    }
+
+    public static long castling(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    public static long enPassantFile(int column) {
+        return EN_PASSANT_FILE[column];
+    }
+
+    public static long blackToMove() {
+        return SIDE;
+    }
+
+    // splitmix64
+    private static long nextRandom() {
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,85 @@
+package chess.perft;
+
+import chess.ChessMatch;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Perft split into fork/join tasks: the moves of the first plies become subtasks, each on its own copy of the
+// position, and the subtree counts are summed.
+public class ParallelPerft extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    // below this depth a subtree is too small to be worth a task
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    private final ChessMatch chessMatch;
+    private final int depth;
+    private final int splitPlies;
+
+    public ParallelPerft(ChessMatch chessMatch, int depth, int splitPlies) {
+        this.chessMatch = chessMatch;
+        this.depth = depth;
+        this.splitPlies = splitPlies;
+    }
+
+    public static long perft(ChessMatch chessMatch, int depth, ForkJoinPool pool) {
+        // splitting two plies deep gives several hundred tasks, enough to keep all cores busy until the end
+        return pool.invoke(new ParallelPerft(chessMatch.copy(), depth, 2));
+    }
+
+    @Override
+    protected Long compute() {
+        if (this.splitPlies == 0 || this.depth < MIN_SPLIT_DEPTH) {
+            return new Perft(this.chessMatch).perft(this.depth);
+        }
+
+        MoveList moves = new MoveList();
+        int count = MoveGenerator.generateLegalMoves(this.chessMatch, moves);
+        List<ParallelPerft> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ChessMatch child = this.chessMatch.copy();
+            child.makeMove(moves.get(i));
+            tasks.add(new ParallelPerft(child, this.depth - 1, this.splitPlies - 1));
+        }
+
+        long nodes = 0;
+        for (ParallelPerft task : invokeAll(tasks)) {
+            nodes += task.join();
+        }
+        return nodes;
+    }
+
+    // usage: ParallelPerft <depth> [fen]
+    // runs the same perft with 1, 2, 4, ... up to all available threads and reports the speedup over one thread
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        String fen = args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length)) : null;
+        ChessMatch chessMatch = fen == null ? new ChessMatch() : ChessMatch.fromFen(fen);
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        double baseline = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, processors)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long start = System.nanoTime();
+            long nodes = perft(chessMatch, depth, pool);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            pool.shutdown();
+
+            double nps = nodes / seconds;
+            if (threads == 1) {
+                baseline = nps;
+            }
+            System.out.printf("threads %3d  nodes %d  time %.3f s  nps %.0f  speedup %.2f%n", threads, nodes, seconds, nps, nps / baseline);
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package chess.perft;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Counts the leaf nodes of the legal move tree to a fixed depth. The counts are known for many positions, so this is
+// both the correctness check of move generation and make/unmake, and the throughput benchmark for them.
+public class Perft {
+
+    private static final int MAX_DEPTH = 64;
+
+    private final ChessMatch chessMatch;
+    private final MoveList[] moveLists = new MoveList[MAX_DEPTH];
+
+    public Perft(ChessMatch chessMatch) {
+        this.chessMatch = chessMatch;
+        for (int i = 0; i < MAX_DEPTH; i++) {
+            this.moveLists[i] = new MoveList();
+        }
+    }
+
+    public long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = this.moveLists[depth];
+        int count = MoveGenerator.generateLegalMoves(this.chessMatch, moves);
+
+        // bulk counting: the moves of the last ply are not made
+        if (depth == 1) {
+            return count;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            this.chessMatch.makeMove(moves.get(i));
+            nodes += this.perft(depth - 1);
+            this.chessMatch.undoMove();
+        }
+        return nodes;
+    }
+
+    // node count below each root move, in move generation order
+    public Map<String, Long> divide(int depth) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        MoveList moves = new MoveList();
+        int count = MoveGenerator.generateLegalMoves(this.chessMatch, moves);
+
+        for (int i = 0; i < count; i++) {
+            this.chessMatch.makeMove(moves.get(i));
+            result.put(Move.toString(moves.get(i)), this.perft(depth - 1));
+            this.chessMatch.undoMove();
+        }
+        return result;
+    }
+
+    // usage: Perft <depth> [fen]
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String fen = args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length)) : null;
+        ChessMatch chessMatch = fen == null ? new ChessMatch() : ChessMatch.fromFen(fen);
+
+        long start = System.nanoTime();
+        Map<String, Long> divide = new Perft(chessMatch).divide(depth);
+        long elapsed = System.nanoTime() - start;
+
+        long nodes = 0;
+        for (Map.Entry<String, Long> entry : divide.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            nodes += entry.getValue();
+        }
+        System.out.println();
+        System.out.println("Moves: " + divide.size());
+        System.out.println("Nodes: " + nodes);
+        System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+        System.out.printf("Nodes per second: %.0f%n", nodes / (elapsed / 1e9));
+    }
+}
@@ -0,0 +1,105 @@
+package chess.perft;
+
+import chess.ChessMatch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs perft over an EPD suite. Each line holds a FEN followed by the expected node counts: "<fen> ;D1 20 ;D2 400".
+public class PerftSuite {
+
+    private final List<String> fens = new ArrayList<>();
+    private final List<long[]> expected = new ArrayList<>();
+
+    public PerftSuite(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split(";");
+            long[] counts = new long[fields.length];
+            for (int i = 1; i < fields.length; i++) {
+                String[] depthAndCount = fields[i].trim().split("\\s+");
+                int depth = Integer.parseInt(depthAndCount[0].substring(1));
+                if (depth >= counts.length) {
+                    counts = Arrays.copyOf(counts, depth + 1);
+                }
+                counts[depth] = Long.parseLong(depthAndCount[1]);
+            }
+            this.fens.add(fields[0].trim());
+            this.expected.add(counts);
+        }
+    }
+
+    public static PerftSuite standard() throws IOException {
+        InputStream in = PerftSuite.class.getResourceAsStream("standard.epd");
+        if (in == null) {
+            throw new IOException("standard.epd not found on the classpath");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return new PerftSuite(reader);
+        }
+    }
+
+    // runs every known count up to maxDepth and returns the number of failures
+    public int run(int maxDepth) {
+        int failures = 0;
+        long totalNodes = 0;
+        long totalTime = 0;
+
+        for (int i = 0; i < this.fens.size(); i++) {
+            long[] counts = this.expected.get(i);
+            for (int depth = 1; depth < counts.length && depth <= maxDepth; depth++) {
+                if (counts[depth] == 0) {
+                    continue;
+                }
+                ChessMatch chessMatch = ChessMatch.fromFen(this.fens.get(i));
+                long start = System.nanoTime();
+                long nodes = new Perft(chessMatch).perft(depth);
+                long elapsed = System.nanoTime() - start;
+                totalNodes += nodes;
+                totalTime += elapsed;
+
+                boolean ok = nodes == counts[depth];
+                if (!ok) {
+                    failures++;
+                }
+                System.out.printf("%s D%d %d (expected %d) %s%n", ok ? "OK  " : "FAIL", depth, nodes, counts[depth], this.fens.get(i));
+            }
+        }
+
+        System.out.println();
+        System.out.println("Failures: " + failures);
+        System.out.println("Nodes: " + totalNodes);
+        System.out.printf("Nodes per second: %.0f%n", totalNodes / (Math.max(totalTime, 1) / 1e9));
+        return failures;
+    }
+
+    // usage: PerftSuite [maxDepth] [file.epd]
+    public static void main(String[] args) throws IOException {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        PerftSuite suite;
+        if (args.length > 1) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+                suite = new PerftSuite(reader);
+            }
+        } else {
+            suite = standard();
+        }
+
+        if (suite.run(maxDepth) > 0) {
+            System.exit(1);
+        }
+    }
+}
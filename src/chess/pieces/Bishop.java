@@ -1,71 +1,30 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.ChessBoard;
 import chess.ChessPiece;
 import chess.Color;
+import chess.Magics;
+import chess.PieceType;
 
 public class Bishop extends ChessPiece {
 
-    public Bishop(Board board, Color color) {
+    public Bishop(ChessBoard board, Color color) {
         super(board, color);
     }
 
+    @Override
+    public PieceType getType() {
+        return PieceType.BISHOP;
+    }
+
     @Override
     public String toString() {
         return "B";
     }
 
     @Override
-    public boolean[][] possibleMoves() {
-        boolean[][] mat = new boolean[this.getBoard().getRows()][this.getBoard().getColumns()];
-
-        Position p = new Position(0, 0);
-
-        // NW
-        p.setValues(this.position.getRow() - 1, this.position.getColumn() - 1);
-
-        while (this.getBoard().positionExists(p) && !this.getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() - 1, p.getColumn() - 1);
-        }
-        if (this.getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // NE
-        p.setValues(this.position.getRow() - 1, this.position.getColumn() + 1);
-
-        while (this.getBoard().positionExists(p) && !this.getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() - 1, p.getColumn() + 1);
-        }
-        if (this.getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // SE
-        p.setValues(this.position.getRow() + 1, this.position.getColumn() + 1);
-
-        while (this.getBoard().positionExists(p) && !this.getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() + 1, p.getColumn() + 1);
-        }
-        if (this.getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // SW
-        p.setValues(this.position.getRow() + 1, this.position.getColumn() - 1);
-
-        while (this.getBoard().positionExists(p) && !this.getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() + 1, p.getColumn() - 1);
-        }
-        if (this.getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        return mat;
+    public long possibleMovesMask() {
+        long moves = Magics.bishopAttacks(this.getSquare(), this.getBoard().getOccupancy());
+        return moves & ~this.getBoard().getOccupancy(this.getColor());
     }
 }
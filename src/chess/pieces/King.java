@@ -1,118 +1,68 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.Bitboards;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class King extends ChessPiece {
 
     private ChessMatch chessMatch;
 
-    public King(Board board, Color color, ChessMatch chessMatch) {
+    public King(ChessBoard board, Color color, ChessMatch chessMatch) {
         super(board, color);
         this.chessMatch = chessMatch;
     }
 
     @Override
-    public String toString() {
-        return "K";
+    public PieceType getType() {
+        return PieceType.KING;
     }
 
-    private boolean canMove(Position position) {
-        ChessPiece p = (ChessPiece) this.getBoard().piece(position);
-        return p == null || p.getColor() != this.getColor();
+    @Override
+    public String toString() {
+        return "K";
     }
 
-    private boolean testRookCastling(Position position) {
-        ChessPiece p = (ChessPiece) getBoard().piece(position);
-        return p instanceof Rook && p.getColor() == getColor() && p.getMoveCount() == 0;
+    private boolean testRookCastling(int square, int castlingRight) {
+        ChessPiece p = this.getBoard().piece(square);
+        return (this.chessMatch.getCastlingRights() & castlingRight) != 0 && p instanceof Rook && p.getColor() == getColor();
     }
 
     @Override
-    public boolean[][] possibleMoves() {
-        boolean[][] mat = new boolean[this.getBoard().getRows()][this.getBoard().getColumns()];
-
-        Position p = new Position(0, 0);
-
-        // above
-        p.setValues(position.getRow() - 1, position.getColumn());
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // below
-        p.setValues(position.getRow() + 1, position.getColumn());
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // left
-        p.setValues(position.getRow(), position.getColumn() - 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // right
-        p.setValues(position.getRow(), position.getColumn() + 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // NW
-        p.setValues(position.getRow() - 1, position.getColumn() - 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // NE
-        p.setValues(position.getRow() - 1, position.getColumn() + 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // NW
-        p.setValues(position.getRow() + 1, position.getColumn() - 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // NE
-        p.setValues(position.getRow() + 1, position.getColumn() + 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // special move castling
-        if (this.getMoveCount() == 0 && !this.chessMatch.getCheck()) {
+    public long possibleMovesMask() {
+        int square = this.getSquare();
+        long occupancy = this.getBoard().getOccupancy();
+        long moves = Bitboards.kingAttacks(square) & ~this.getBoard().getOccupancy(this.getColor());
+
+        // special move castling: the king may not castle out of, through or into check
+        Color opponent = this.getColor().opponent();
+        boolean white = this.getColor() == Color.WHITE;
+        if (Bitboards.column(square) == 4 && !this.getBoard().isSquareAttacked(square, opponent)) {
             // special move king side move
-            Position posT1 = new Position(position.getRow(), position.getColumn() + 3);
-            if (this.testRookCastling(posT1)) {
-                Position p1 = new Position(position.getRow(), position.getColumn() + 1);
-                Position p2 = new Position(position.getRow(), position.getColumn() + 2);
-                if (this.getBoard().piece(p1) == null && this.getBoard().piece(p2) == null) {
-                    mat[position.getRow()][position.getColumn() + 2] = true;
-                }
+            if (
+                    this.testRookCastling(square + 3, white ? ChessMatch.WHITE_KING_SIDE : ChessMatch.BLACK_KING_SIDE) &&
+                            (occupancy & (Bitboards.bit(square + 1) | Bitboards.bit(square + 2))) == 0 &&
+                            !this.getBoard().isSquareAttacked(square + 1, opponent) &&
+                            !this.getBoard().isSquareAttacked(square + 2, opponent)
+            ) {
+                moves |= Bitboards.bit(square + 2);
             }
 
             // special move queen side move
-            Position posT2 = new Position(position.getRow(), position.getColumn() - 4);
-            if (this.testRookCastling(posT2)) {
-                Position p1 = new Position(position.getRow(), position.getColumn() - 1);
-                Position p2 = new Position(position.getRow(), position.getColumn() - 2);
-                Position p3 = new Position(position.getRow(), position.getColumn() - 3);
-                if (
-                        this.getBoard().piece(p1) == null &&
-                                this.getBoard().piece(p2) == null &&
-                                this.getBoard().piece(p3) == null
-                ) {
-                    mat[position.getRow()][position.getColumn() - 2] = true;
-                }
+            long between = Bitboards.bit(square - 1) | Bitboards.bit(square - 2) | Bitboards.bit(square - 3);
+            if (
+                    this.testRookCastling(square - 4, white ? ChessMatch.WHITE_QUEEN_SIDE : ChessMatch.BLACK_QUEEN_SIDE) &&
+                            (occupancy & between) == 0 &&
+                            !this.getBoard().isSquareAttacked(square - 1, opponent) &&
+                            !this.getBoard().isSquareAttacked(square - 2, opponent)
+            ) {
+                moves |= Bitboards.bit(square - 2);
             }
         }
 
-
-        return mat;
+        return moves;
     }
 }
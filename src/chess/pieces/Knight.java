@@ -1,80 +1,28 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.Bitboards;
+import chess.ChessBoard;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Knight extends ChessPiece {
-    public Knight(Board board, Color color) {
+    public Knight(ChessBoard board, Color color) {
         super(board, color);
     }
 
     @Override
-    public String toString() {
-        return "N";
+    public PieceType getType() {
+        return PieceType.KNIGHT;
     }
 
-    private boolean canMove(Position position) {
-        ChessPiece p = (ChessPiece) this.getBoard().piece(position);
-        return p == null || p.getColor() != this.getColor();
+    @Override
+    public String toString() {
+        return "N";
     }
 
     @Override
-    public boolean[][] possibleMoves() {
-        boolean[][] mat = new boolean[this.getBoard().getRows()][this.getBoard().getColumns()];
-
-        Position p = new Position(0, 0);
-
-
-        p.setValues(position.getRow() - 1, position.getColumn() - 2);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-
-        p.setValues(position.getRow() - 2, position.getColumn() - 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-
-        p.setValues(position.getRow() - 2, position.getColumn() + 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-
-        p.setValues(position.getRow() - 1, position.getColumn() + 2);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // NW
-        p.setValues(position.getRow() + 1, position.getColumn() + 2);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // NE
-        p.setValues(position.getRow() + 2, position.getColumn() + 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // NW
-        p.setValues(position.getRow() + 2, position.getColumn() - 1);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-
-        // NE
-        p.setValues(position.getRow() + 1, position.getColumn() - 2);
-        if (this.getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        return mat;
+    public long possibleMovesMask() {
+        return Bitboards.knightAttacks(this.getSquare()) & ~this.getBoard().getOccupancy(this.getColor());
     }
 }
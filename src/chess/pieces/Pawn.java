@@ -1,136 +1,54 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.Bitboards;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Pawn extends ChessPiece {
 
     private ChessMatch chessMatch;
 
-    public Pawn(Board board, Color color, ChessMatch chessMatch) {
+    public Pawn(ChessBoard board, Color color, ChessMatch chessMatch) {
         super(board, color);
         this.chessMatch = chessMatch;
     }
 
     @Override
-    public boolean[][] possibleMoves() {
-
-
-        boolean[][] mat = new boolean[this.getBoard().getRows()][this.getBoard().getColumns()];
-
-        Position p = new Position(0, 0);
+    public long possibleMovesMask() {
+        int square = this.getSquare();
+        long empty = ~this.getBoard().getOccupancy();
+        long opponents = this.getBoard().getOccupancy(this.getColor() == Color.WHITE ? Color.BLACK : Color.WHITE);
 
+        long moves;
         if (this.getColor() == Color.WHITE) {
-            //
-            p.setValues(position.getRow() - 1, position.getColumn());
-            if (this.getBoard().positionExists(p) && !this.getBoard().thereIsAPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            //
-            p.setValues(position.getRow() - 2, position.getColumn());
-            Position p2 = new Position(position.getRow() - 1, position.getColumn());
-            if (
-                    this.getBoard().positionExists(p) &&
-                            !this.getBoard().thereIsAPiece(p) &&
-                            this.getBoard().positionExists(p2) &&
-                            !this.getBoard().thereIsAPiece(p2) &&
-                            this.getMoveCount() == 0
-            ) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            //
-            p.setValues(position.getRow() - 1, position.getColumn() - 1);
-            if (this.getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            //
-            p.setValues(position.getRow() - 1, position.getColumn() + 1);
-            if (this.getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-
-            // special move en passant - white
-            if (position.getRow() == 3) {
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                if (
-                        this.getBoard().positionExists(left) &&
-                                this.isThereOpponentPiece(left) &&
-                                this.getBoard().piece(left) ==
-                                        this.chessMatch.getEnPassantVulnerable()
-                ) {
-                    mat[left.getRow() - 1][left.getColumn()] = true;
-                }
-
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (
-                        this.getBoard().positionExists(right) &&
-                                this.isThereOpponentPiece(right) &&
-                                this.getBoard().piece(right) ==
-                                        this.chessMatch.getEnPassantVulnerable()
-                ) {
-                    mat[right.getRow() - 1][right.getColumn()] = true;
-                }
+            moves = (Bitboards.bit(square) >>> 8) & empty;
+            if (Bitboards.row(square) == 6) {
+                moves |= (moves >>> 8) & empty;
             }
         } else {
-            //
-            p.setValues(position.getRow() + 1, position.getColumn());
-            if (this.getBoard().positionExists(p) && !this.getBoard().thereIsAPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
+            moves = (Bitboards.bit(square) << 8) & empty;
+            if (Bitboards.row(square) == 1) {
+                moves |= (moves << 8) & empty;
             }
-            //
-            p.setValues(position.getRow() + 2, position.getColumn());
-            Position p2 = new Position(position.getRow() + 1, position.getColumn());
-            if (
-                    this.getBoard().positionExists(p) &&
-                            !this.getBoard().thereIsAPiece(p) &&
-                            this.getBoard().positionExists(p2) &&
-                            !this.getBoard().thereIsAPiece(p2) &&
-                            this.getMoveCount() == 0
-            ) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            //
-            p.setValues(position.getRow() + 1, position.getColumn() - 1);
-            if (this.getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            //
-            p.setValues(position.getRow() + 1, position.getColumn() + 1);
-            if (this.getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-
-
-            // special move en passant - black
-            if (position.getRow() == 4) {
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                if (
-                        this.getBoard().positionExists(left) &&
-                                this.isThereOpponentPiece(left) &&
-                                this.getBoard().piece(left) ==
-                                        this.chessMatch.getEnPassantVulnerable()
-                ) {
-                    mat[left.getRow() + 1][left.getColumn()] = true;
-                }
+        }
+        moves |= Bitboards.pawnAttacks(this.getColor(), square) & opponents;
 
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (
-                        this.getBoard().positionExists(right) &&
-                                this.isThereOpponentPiece(right) &&
-                                this.getBoard().piece(right) ==
-                                        this.chessMatch.getEnPassantVulnerable()
-                ) {
-                    mat[right.getRow() + 1][right.getColumn()] = true;
-                }
-            }
+        // special move en passant
+        int enPassant = this.chessMatch.getEnPassantSquare();
+        if (enPassant >= 0 && Bitboards.row(enPassant) == (this.getColor() == Color.WHITE ? 2 : 5)) {
+            moves |= Bitboards.pawnAttacks(this.getColor(), square) & Bitboards.bit(enPassant);
         }
 
-        return mat;
+        return moves;
     }
 
+    @Override
+    public PieceType getType() {
+        return PieceType.PAWN;
+    }
 
     @Override
     public String toString() {
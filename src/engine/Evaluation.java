@@ -0,0 +1,46 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Color;
+import chess.PieceSquareTables;
+import chess.PieceType;
+
+// Static evaluation in centipawns from the point of view of the player to move. Material and piece-square scores are
+// kept by the board as pieces move, so an evaluation only blends them by game phase and adds a few cheap terms.
+public final class Evaluation {
+
+    public static final int PAWN = 100;
+    public static final int KNIGHT = 320;
+    public static final int BISHOP = 330;
+    public static final int ROOK = 500;
+    public static final int QUEEN = 900;
+
+    private static final int BISHOP_PAIR = 30;
+    private static final int TEMPO = 10;
+
+    private Evaluation() {
+    }
+
+    public static int evaluate(ChessMatch chessMatch) {
+        return evaluate(chessMatch, PawnStructure.evaluate(chessMatch.getBoard()));
+    }
+
+    // the pawn structure comes from the cache, the search evaluates through here
+    public static int evaluate(ChessMatch chessMatch, PawnHashTable pawnTable) {
+        return evaluate(chessMatch, pawnTable.probe(chessMatch.getBoard()));
+    }
+
+    private static int evaluate(ChessMatch chessMatch, long pawnStructure) {
+        ChessBoard board = chessMatch.getBoard();
+        int middlegame = board.getMiddlegameScore() + PawnStructure.middlegame(pawnStructure) + PawnStructure.shield(board);
+        int endgame = board.getEndgameScore() + PawnStructure.endgame(pawnStructure);
+        int score = PieceSquareTables.taper(middlegame, endgame, board.getPhase());
+        score += bishopPair(board, Color.WHITE) - bishopPair(board, Color.BLACK);
+        return (chessMatch.getCurrentPlayer() == Color.WHITE ? score : -score) + TEMPO;
+    }
+
+    private static int bishopPair(ChessBoard board, Color color) {
+        return Long.bitCount(board.getBitboard(PieceType.BISHOP, color)) >= 2 ? BISHOP_PAIR : 0;
+    }
+}
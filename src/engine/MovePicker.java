@@ -0,0 +1,231 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.PieceType;
+
+// Hands out the moves of a position best first, generating them in stages so a node that is cut off early never pays
+// for the rest: the hash move, then captures and promotions by most valuable victim and least valuable attacker, then
+// the killer moves of the ply, then the remaining quiet moves by history score, and last the captures that lose
+// material by static exchange. Each stage picks its best move with a selection pass instead of sorting the whole list,
+// most nodes use only the first few moves.
+public class MovePicker {
+
+    private static final int HASH = 0;
+    private static final int CAPTURES = 1;
+    private static final int KILLERS = 2;
+    private static final int QUIETS = 3;
+    private static final int BAD_CAPTURES = 4;
+    private static final int DONE = 5;
+    private static final int UNORDERED = 6;
+
+    private final MoveList captures = new MoveList();
+    private final MoveList quiets = new MoveList();
+    private final int[] scores = new int[256];
+    private final int[] badCaptures = new int[256];
+    private final int[] exchangeGains = new int[StaticExchange.MAX_EXCHANGE];
+    private int badCaptureCount;
+
+    private ChessMatch chessMatch;
+    private int[] killers;
+    private int[] history;
+
+    private int stage;
+    private int index;
+    private int killerIndex;
+    private boolean capturesGenerated;
+    private boolean quietsGenerated;
+    private int hashMove;
+    private boolean capturesOnly;
+
+    // killers are the two killer moves of the ply, history the history table of the player to move
+    public void init(ChessMatch chessMatch, int hashMove, int[] killers, int[] history) {
+        this.chessMatch = chessMatch;
+        this.hashMove = hashMove;
+        this.killers = killers;
+        this.history = history;
+        this.stage = HASH;
+        this.capturesGenerated = false;
+        this.quietsGenerated = false;
+        this.badCaptureCount = 0;
+        this.capturesOnly = false;
+    }
+
+    // only the captures and promotions that do not lose material, for the quiescence search
+    public void initCaptures(ChessMatch chessMatch) {
+        this.chessMatch = chessMatch;
+        this.hashMove = Move.NONE;
+        this.stage = CAPTURES;
+        this.index = 0;
+        this.capturesGenerated = false;
+        this.quietsGenerated = false;
+        this.badCaptureCount = 0;
+        this.capturesOnly = true;
+    }
+
+    // every legal move in generation order, to measure what the ordering saves
+    public void initUnordered(ChessMatch chessMatch) {
+        this.chessMatch = chessMatch;
+        this.stage = UNORDERED;
+        this.index = 0;
+        MoveGenerator.generateLegalMoves(chessMatch, this.quiets);
+    }
+
+    // the next move to search, or Move.NONE when all moves have been handed out; each stage falls through to the next
+    // once it runs out of moves
+    @SuppressWarnings("fallthrough")
+    public int next() {
+        switch (this.stage) {
+            case HASH:
+                this.stage = CAPTURES;
+                this.index = 0;
+                if (this.hashMove != Move.NONE && this.isLegal(this.hashMove)) {
+                    return this.hashMove;
+                }
+                this.hashMove = Move.NONE;
+                // fall through
+            case CAPTURES:
+                if (!this.capturesGenerated) {
+                    this.generateCaptures();
+                }
+                while (this.index < this.captures.size()) {
+                    int move = this.pick(this.captures, this.index++);
+                    if (move == this.hashMove) {
+                        continue;
+                    }
+                    if (this.isWinningOrEven(move)) {
+                        return move;
+                    }
+                    if (!this.capturesOnly) {
+                        this.badCaptures[this.badCaptureCount++] = move;
+                    }
+                }
+                if (this.capturesOnly) {
+                    this.stage = DONE;
+                    return Move.NONE;
+                }
+                this.stage = KILLERS;
+                this.killerIndex = 0;
+                // fall through
+            case KILLERS:
+                while (this.killerIndex < this.killers.length) {
+                    int move = this.killers[this.killerIndex++];
+                    if (move != Move.NONE && move != this.hashMove && !Move.isCapture(move) && this.isLegal(move)) {
+                        return move;
+                    }
+                }
+                this.stage = QUIETS;
+                this.index = 0;
+                if (!this.quietsGenerated) {
+                    this.generateQuiets();
+                }
+                for (int i = 0; i < this.quiets.size(); i++) {
+                    int move = this.quiets.get(i);
+                    this.scores[i] = this.history[move & 0xFFF];
+                }
+                // fall through
+            case QUIETS:
+                while (this.index < this.quiets.size()) {
+                    int move = this.pick(this.quiets, this.index++);
+                    if (move != this.hashMove && !this.isKiller(move)) {
+                        return move;
+                    }
+                }
+                this.stage = BAD_CAPTURES;
+                this.index = 0;
+                // fall through
+            case BAD_CAPTURES:
+                if (this.index < this.badCaptureCount) {
+                    return this.badCaptures[this.index++];
+                }
+                this.stage = DONE;
+                return Move.NONE;
+            case UNORDERED:
+                return this.index < this.quiets.size() ? this.quiets.get(this.index++) : Move.NONE;
+            default:
+                return Move.NONE;
+        }
+    }
+
+    // swaps the best scored move from index on into index and returns it
+    private int pick(MoveList moves, int index) {
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (this.scores[i] > this.scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        int score = this.scores[best];
+        moves.set(best, moves.get(index));
+        this.scores[best] = this.scores[index];
+        moves.set(index, move);
+        this.scores[index] = score;
+        return move;
+    }
+
+    private void generateCaptures() {
+        MoveGenerator.generateCaptures(this.chessMatch, this.captures);
+        this.capturesGenerated = true;
+        ChessBoard board = this.chessMatch.getBoard();
+        for (int i = 0; i < this.captures.size(); i++) {
+            this.scores[i] = mvvLva(board, this.captures.get(i));
+        }
+    }
+
+    private void generateQuiets() {
+        MoveGenerator.generateQuietMoves(this.chessMatch, this.quiets);
+        this.quietsGenerated = true;
+    }
+
+    // taking a piece worth at least the capturer never loses material, only the other captures need an exchange
+    private boolean isWinningOrEven(int move) {
+        ChessBoard board = this.chessMatch.getBoard();
+        if (Move.isCapture(move) && !Move.isPromotion(move) && Move.flags(move) != Move.EN_PASSANT
+                && StaticExchange.value(board.piece(Move.to(move)).getType()) >= StaticExchange.value(board.piece(Move.from(move)).getType())) {
+            return true;
+        }
+        return StaticExchange.isAtLeast(board, move, 0, this.exchangeGains);
+    }
+
+    // hash and killer moves come from other positions, they are only played when the generator produces them here
+    private boolean isLegal(int move) {
+        if (Move.isCapture(move) || Move.isPromotion(move)) {
+            if (!this.capturesGenerated) {
+                this.generateCaptures();
+            }
+            return this.captures.contains(move);
+        }
+        if (!this.quietsGenerated) {
+            this.generateQuiets();
+        }
+        return this.quiets.contains(move);
+    }
+
+    private boolean isKiller(int move) {
+        for (int killer : this.killers) {
+            if (killer == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // most valuable victim first, among equal victims the least valuable attacker first; queen promotions go
+    // before and under-promotions after all plain captures
+    static int mvvLva(ChessBoard board, int move) {
+        int score = 0;
+        if (Move.isCapture(move)) {
+            PieceType victim = Move.flags(move) == Move.EN_PASSANT ? PieceType.PAWN : board.piece(Move.to(move)).getType();
+            PieceType attacker = board.piece(Move.from(move)).getType();
+            score = victim.ordinal() * 8 + PieceType.KING.ordinal() - attacker.ordinal();
+        }
+        if (Move.isPromotion(move)) {
+            score += Move.promotionType(move) == PieceType.QUEEN ? 64 : -64;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,119 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.Move;
+
+import java.util.Arrays;
+
+// Lazy SMP: several threads search the same root, each on its own copy of the match, and share one transposition
+// table. Helper threads start their iterative deepening at staggered depths, so they fill the table with results the
+// main thread finds instead of computing them again. The main thread decides the move; helpers are stopped when it ends.
+public class ParallelSearch {
+
+    private final ChessMatch chessMatch;
+    private final int threads;
+    private final TranspositionTable table;
+
+    private int maxDepth = Search.MAX_PLY;
+    private long timeLimitMillis = Long.MAX_VALUE;
+
+    private Search mainSearch;
+    private long nodes;
+
+    public ParallelSearch(ChessMatch chessMatch, int threads, TranspositionTable table) {
+        this.chessMatch = chessMatch;
+        this.threads = Math.max(1, threads);
+        this.table = table;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public void setTimeLimit(long millis) {
+        this.timeLimitMillis = millis;
+    }
+
+    // best move for the player to move, or Move.NONE when there is no legal move; the match itself is not changed
+    public int search() {
+        this.table.newSearch();
+        Search[] helpers = new Search[this.threads - 1];
+        Thread[] workers = new Thread[this.threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = new Search(this.chessMatch.copy(), this.table);
+            helper.setStartDepth(2 + (i & 1));
+            helpers[i] = helper;
+            workers[i] = new Thread(helper::search, "search-helper-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        this.mainSearch = new Search(this.chessMatch.copy(), this.table);
+        this.mainSearch.setMaxDepth(this.maxDepth);
+        this.mainSearch.setTimeLimit(this.timeLimitMillis);
+        this.mainSearch.search();
+
+        this.nodes = this.mainSearch.getNodes();
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i].stop();
+            try {
+                workers[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.nodes += helpers[i].getNodes();
+        }
+        return this.mainSearch.getBestMove();
+    }
+
+    public int getBestMove() {
+        return this.mainSearch.getBestMove();
+    }
+
+    public int getScore() {
+        return this.mainSearch.getScore();
+    }
+
+    public int getCompletedDepth() {
+        return this.mainSearch.getCompletedDepth();
+    }
+
+    // nodes searched by all threads together
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    public int[] getPrincipalVariation() {
+        return this.mainSearch.getPrincipalVariation();
+    }
+
+    // usage: ParallelSearch <depth> [fen]
+    // searches the same position to the same depth with 1, 2, 4, ... up to all available threads and reports how much
+    // sooner the depth is reached than with one thread; on a single core only the one thread baseline is printed
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        String fen = args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length)) : null;
+        ChessMatch chessMatch = fen == null ? new ChessMatch() : ChessMatch.fromFen(fen);
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        double baseline = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, processors)) {
+            TranspositionTable table = new TranspositionTable(64);
+            ParallelSearch search = new ParallelSearch(chessMatch, threads, table);
+            search.setMaxDepth(depth);
+            long start = System.nanoTime();
+            int move = search.search();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            if (threads == 1) {
+                baseline = seconds;
+            }
+            System.out.printf("threads %3d  depth %d  move %s  score %d  nodes %d  time %.3f s  nps %.0f  speedup %.2f  hits %.1f%%%n",
+                    threads, search.getCompletedDepth(), Move.toString(move), search.getScore(), search.getNodes(),
+                    seconds, search.getNodes() / seconds, baseline / seconds, table.getHitRate() * 100);
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+}
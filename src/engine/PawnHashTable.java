@@ -0,0 +1,51 @@
+package engine;
+
+import chess.ChessBoard;
+
+// Cache of pawn structure scores by pawn key. Pawns move in few of the positions a search visits, so nearly every
+// evaluation finds its structure here. A table belongs to one search thread and needs no synchronization.
+public class PawnHashTable {
+
+    private final long[] keys;
+    private final long[] scores;
+    private final int mask;
+
+    private long probes;
+    private long hits;
+
+    public PawnHashTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        this.keys = new long[size];
+        this.scores = new long[size];
+        this.mask = size - 1;
+        // every slot starts as the empty structure, which scores nothing, so a fresh table is already consistent
+    }
+
+    // the packed PawnStructure score of the board's pawns, computed and stored on a miss
+    public long probe(ChessBoard board) {
+        long key = board.getPawnKey();
+        int index = (int) key & this.mask;
+        this.probes++;
+        if (this.keys[index] == key) {
+            this.hits++;
+            return this.scores[index];
+        }
+        long score = PawnStructure.evaluate(board);
+        this.keys[index] = key;
+        this.scores[index] = score;
+        return score;
+    }
+
+    public long getProbes() {
+        return this.probes;
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    // share of probes that found their pawns, between 0 and 1
+    public double getHitRate() {
+        return this.probes == 0 ? 0 : (double) this.hits / this.probes;
+    }
+}
@@ -0,0 +1,151 @@
+package engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.Color;
+import chess.PieceType;
+
+// Pawn structure terms, which depend on nothing but the pawns: doubled, isolated, backward and passed pawns. Scores
+// are white minus black, the middlegame and endgame parts packed in one long so a cache entry is a single value.
+// The king's pawn shield also depends on the king, so it is scored apart and not cached.
+public final class PawnStructure {
+
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    private static final int BACKWARD_MIDDLEGAME = -8;
+    private static final int BACKWARD_ENDGAME = -10;
+
+    private static final int SHIELD_MIDDLEGAME = 10;
+
+    // by rank seen from the pawn's own side, rank 2 first
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 15, 25, 40, 65, 100, 0};
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // indexed by color ordinal and square: the squares ahead on the same file, ahead on the same and adjacent files,
+    // and level with or behind on the adjacent files
+    private static final long[][] FORWARD = new long[2][64];
+    private static final long[][] PASSED = new long[2][64];
+    private static final long[][] SUPPORT = new long[2][64];
+    private static final long[][] SHIELD = new long[2][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            FILES[Bitboards.column(square)] |= Bitboards.bit(square);
+        }
+        for (int column = 0; column < 8; column++) {
+            ADJACENT_FILES[column] = (column > 0 ? FILES[column - 1] : 0L) | (column < 7 ? FILES[column + 1] : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            int row = Bitboards.row(square);
+            int column = Bitboards.column(square);
+            for (int other = 0; other < 64; other++) {
+                int otherRow = Bitboards.row(other);
+                long bit = Bitboards.bit(other);
+                boolean sameFile = Bitboards.column(other) == column;
+                boolean adjacentFile = Math.abs(Bitboards.column(other) - column) == 1;
+                if (sameFile || adjacentFile) {
+                    if (otherRow == row - 1 || otherRow == row - 2) {
+                        SHIELD[Color.WHITE.ordinal()][square] |= bit;
+                    }
+                    if (otherRow == row + 1 || otherRow == row + 2) {
+                        SHIELD[Color.BLACK.ordinal()][square] |= bit;
+                    }
+                }
+                // white moves towards row 0, black towards row 7
+                if (otherRow < row) {
+                    if (sameFile) {
+                        FORWARD[Color.WHITE.ordinal()][square] |= bit;
+                    }
+                    if (sameFile || adjacentFile) {
+                        PASSED[Color.WHITE.ordinal()][square] |= bit;
+                    }
+                } else if (adjacentFile) {
+                    SUPPORT[Color.WHITE.ordinal()][square] |= bit;
+                }
+                if (otherRow > row) {
+                    if (sameFile) {
+                        FORWARD[Color.BLACK.ordinal()][square] |= bit;
+                    }
+                    if (sameFile || adjacentFile) {
+                        PASSED[Color.BLACK.ordinal()][square] |= bit;
+                    }
+                } else if (adjacentFile) {
+                    SUPPORT[Color.BLACK.ordinal()][square] |= bit;
+                }
+            }
+        }
+    }
+
+    private PawnStructure() {
+    }
+
+    public static long evaluate(ChessBoard board) {
+        int middlegame = 0;
+        int endgame = 0;
+        for (Color color : Color.values()) {
+            int sign = color == Color.WHITE ? 1 : -1;
+            long own = board.getBitboard(PieceType.PAWN, color);
+            long opponents = board.getBitboard(PieceType.PAWN, color.opponent());
+            int forward = color == Color.WHITE ? -8 : 8;
+
+            long pawns = own;
+            while (pawns != 0) {
+                int square = Long.numberOfTrailingZeros(pawns);
+                pawns &= pawns - 1;
+                int column = Bitboards.column(square);
+                int c = color.ordinal();
+
+                // only the rearmost pawn of a file counts as doubled, once for each pawn in front of it
+                if ((FORWARD[c][square] & own) != 0 && (FORWARD[color.opponent().ordinal()][square] & own) == 0) {
+                    int extra = Long.bitCount(FILES[column] & own) - 1;
+                    middlegame += sign * DOUBLED_MIDDLEGAME * extra;
+                    endgame += sign * DOUBLED_ENDGAME * extra;
+                }
+
+                if ((ADJACENT_FILES[column] & own) == 0) {
+                    middlegame += sign * ISOLATED_MIDDLEGAME;
+                    endgame += sign * ISOLATED_ENDGAME;
+                } else if ((SUPPORT[c][square] & own) == 0
+                        && (Bitboards.pawnAttacks(color, square + forward) & opponents) != 0) {
+                    // no pawn can come alongside to protect it, and an enemy pawn guards the square in front
+                    middlegame += sign * BACKWARD_MIDDLEGAME;
+                    endgame += sign * BACKWARD_ENDGAME;
+                }
+
+                // a passed pawn not blocked by a pawn of its own in front of it
+                if ((PASSED[c][square] & opponents) == 0 && (FORWARD[c][square] & own) == 0) {
+                    int rank = color == Color.WHITE ? 7 - Bitboards.row(square) : Bitboards.row(square);
+                    middlegame += sign * PASSED_MIDDLEGAME[rank - 1];
+                    endgame += sign * PASSED_ENDGAME[rank - 1];
+                }
+            }
+        }
+        return pack(middlegame, endgame);
+    }
+
+    // middlegame bonus, white minus black, for own pawns on the three files around each king and up to two ranks ahead
+    public static int shield(ChessBoard board) {
+        int score = 0;
+        for (Color color : Color.values()) {
+            long pawns = board.getBitboard(PieceType.PAWN, color) & SHIELD[color.ordinal()][board.kingSquare(color)];
+            score += (color == Color.WHITE ? 1 : -1) * SHIELD_MIDDLEGAME * Long.bitCount(pawns);
+        }
+        return score;
+    }
+
+    public static long pack(int middlegame, int endgame) {
+        return (long) middlegame << 32 | (endgame & 0xFFFFFFFFL);
+    }
+
+    public static int middlegame(long score) {
+        return (int) (score >> 32);
+    }
+
+    public static int endgame(long score) {
+        return (int) score;
+    }
+}
@@ -0,0 +1,361 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.Color;
+
+import java.util.Arrays;
+
+// Negamax alpha-beta search with iterative deepening. Each iteration searches one ply deeper than the last, with the
+// previous principal variation first, until the depth or time budget runs out. At the horizon a quiescence search
+// plays on the captures that do not lose material, so leaves are only evaluated in quiet positions. The result of the last completed
+// iteration is kept, so a search stopped by the clock still returns a sound move; the clock only counts once the
+// first iteration is complete, so there always is one.
+public class Search {
+
+    public static final int MAX_PLY = 64;
+    public static final int INFINITY = 1_000_000;
+    public static final int MATE = 100_000;
+
+    private final ChessMatch chessMatch;
+    private final TranspositionTable table;
+    private final PawnHashTable pawnTable = new PawnHashTable(1 << 16);
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY + 1];
+
+    // two quiet moves per ply that caused a cutoff, tried right after the captures in sibling positions
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    // per color, how much each quiet move indexed by from and to squares has caused cutoffs
+    private final int[][] history = new int[2][64 * 64];
+
+    // triangular principal variation table: pv[ply] holds the best line found from that ply
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    private int startDepth = 1;
+    private int maxDepth = MAX_PLY;
+    private long timeLimitMillis = Long.MAX_VALUE;
+    private boolean ordering = true;
+
+    private long deadline;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+    private long nodes;
+
+    private int bestMove = Move.NONE;
+    private int bestScore;
+    private int completedDepth;
+    private int[] principalVariation = new int[0];
+
+    // the search makes and takes back moves on this match, pass a copy to keep a game untouched
+    public Search(ChessMatch chessMatch) {
+        this(chessMatch, new TranspositionTable(16));
+    }
+
+    // searches sharing a table see each other's results, which is what makes several threads faster than one
+    public Search(ChessMatch chessMatch, TranspositionTable table) {
+        this.chessMatch = chessMatch;
+        this.table = table;
+        for (int i = 0; i <= MAX_PLY; i++) {
+            this.pickers[i] = new MovePicker();
+        }
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_PLY));
+    }
+
+    // first iteration to search, helper threads start deeper so they do not all repeat the same work
+    public void setStartDepth(int startDepth) {
+        this.startDepth = Math.max(1, Math.min(startDepth, MAX_PLY));
+    }
+
+    public void setTimeLimit(long millis) {
+        this.timeLimitMillis = millis;
+    }
+
+    // without ordering moves are searched in generation order, only useful to measure what the ordering is worth
+    public void setOrdering(boolean ordering) {
+        this.ordering = ordering;
+    }
+
+    // asks a search running on another thread to return as soon as possible
+    public void stop() {
+        this.stopRequested = true;
+    }
+
+    // best move for the player to move, or Move.NONE when there is no legal move
+    public int search() {
+        long start = System.currentTimeMillis();
+        this.deadline = this.timeLimitMillis == Long.MAX_VALUE ? Long.MAX_VALUE : start + this.timeLimitMillis;
+        this.stopped = this.stopRequested;
+        this.nodes = 0;
+        this.bestMove = Move.NONE;
+        this.bestScore = 0;
+        this.completedDepth = 0;
+        this.principalVariation = new int[0];
+        for (int[] plyKillers : this.killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        for (int[] colorHistory : this.history) {
+            Arrays.fill(colorHistory, 0);
+        }
+
+        for (int depth = Math.min(this.startDepth, this.maxDepth); depth <= this.maxDepth; depth++) {
+            int score = this.negamax(depth, -INFINITY, INFINITY, 0);
+            if (this.stopped) {
+                break;
+            }
+
+            this.completedDepth = depth;
+            this.bestScore = score;
+            this.principalVariation = Arrays.copyOf(this.pv[0], this.pvLength[0]);
+            this.bestMove = this.pvLength[0] > 0 ? this.pv[0][0] : Move.NONE;
+
+            // a forced mate will not change with more depth
+            if (this.bestMove == Move.NONE || Math.abs(score) >= MATE - MAX_PLY) {
+                break;
+            }
+        }
+
+        // stopped from outside before the first iteration completed: any legal move is still better than none
+        if (this.bestMove == Move.NONE && this.completedDepth == 0) {
+            MovePicker picker = this.pickers[0];
+            picker.initUnordered(this.chessMatch);
+            this.bestMove = picker.next();
+        }
+        return this.bestMove;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if (depth <= 0) {
+            return this.quiescence(alpha, beta, ply);
+        }
+        this.pvLength[ply] = 0;
+        if (this.countNode()) {
+            return 0;
+        }
+        if (ply == MAX_PLY) {
+            return Evaluation.evaluate(this.chessMatch, this.pawnTable);
+        }
+
+        long key = this.chessMatch.getPositionKey();
+        long entry = this.table.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha) {
+                    return score;
+                }
+            }
+        }
+
+        // try the table's move first, or else the move of the previous iteration's principal variation
+        if (hashMove == Move.NONE && ply < this.principalVariation.length) {
+            hashMove = this.principalVariation[ply];
+        }
+        Color color = this.chessMatch.getCurrentPlayer();
+        MovePicker picker = this.pickers[ply];
+        if (this.ordering) {
+            picker.init(this.chessMatch, hashMove, this.killers[ply], this.history[color.ordinal()]);
+        } else {
+            picker.initUnordered(this.chessMatch);
+        }
+
+        int move = picker.next();
+        if (move == Move.NONE) {
+            // checkmate, the sooner the worse, or stalemate
+            return this.chessMatch.testCheck() ? -MATE + ply : 0;
+        }
+        if (ply > 0 && this.chessMatch.getHalfmoveClock() >= 100) {
+            return 0;
+        }
+
+        int originalAlpha = alpha;
+        int bestMove = Move.NONE;
+        int best = -INFINITY;
+        for (; move != Move.NONE; move = picker.next()) {
+            this.chessMatch.makeMove(move);
+            int score = -this.negamax(depth - 1, -beta, -alpha, ply + 1);
+            this.chessMatch.undoMove();
+
+            if (this.stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    this.updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                            this.updateQuietCutoff(ply, move, depth, color);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        this.table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    // mate scores are stored relative to the node rather than the root, so they stay right wherever the position recurs
+    private static int toTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+
+    // the side to move may stand pat on the static evaluation, or try to raise it with captures and promotions;
+    // a side in check has no such choice and searches every evasion
+    private int quiescence(int alpha, int beta, int ply) {
+        this.pvLength[ply] = 0;
+        if (this.countNode()) {
+            return 0;
+        }
+        if (ply == MAX_PLY) {
+            return Evaluation.evaluate(this.chessMatch, this.pawnTable);
+        }
+
+        boolean inCheck = this.chessMatch.testCheck();
+        MovePicker picker = this.pickers[ply];
+        int best = -INFINITY;
+        if (inCheck) {
+            Color color = this.chessMatch.getCurrentPlayer();
+            picker.init(this.chessMatch, Move.NONE, this.killers[ply], this.history[color.ordinal()]);
+        } else {
+            best = Evaluation.evaluate(this.chessMatch, this.pawnTable);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+            picker.initCaptures(this.chessMatch);
+        }
+
+        int move = picker.next();
+        if (inCheck && move == Move.NONE) {
+            return -MATE + ply;
+        }
+        for (; move != Move.NONE; move = picker.next()) {
+            this.chessMatch.makeMove(move);
+            int score = -this.quiescence(-beta, -alpha, ply + 1);
+            this.chessMatch.undoMove();
+
+            if (this.stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    this.updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // counts the node and, now and then, looks at the clock; true when the search has to stop
+    private boolean countNode() {
+        if ((++this.nodes & 2047) == 0
+                && (this.stopRequested || this.completedDepth > 0 && System.currentTimeMillis() >= this.deadline)) {
+            this.stopped = true;
+        }
+        return this.stopped;
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        this.pv[ply][0] = move;
+        System.arraycopy(this.pv[ply + 1], 0, this.pv[ply], 1, this.pvLength[ply + 1]);
+        this.pvLength[ply] = this.pvLength[ply + 1] + 1;
+    }
+
+    private void updateQuietCutoff(int ply, int move, int depth, Color color) {
+        int[] plyKillers = this.killers[ply];
+        if (plyKillers[0] != move) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+        int[] colorHistory = this.history[color.ordinal()];
+        colorHistory[move & 0xFFF] += depth * depth;
+        // keep the scores far from overflow, halving all of them keeps their order
+        if (colorHistory[move & 0xFFF] > 1 << 24) {
+            for (int i = 0; i < colorHistory.length; i++) {
+                colorHistory[i] >>= 1;
+            }
+        }
+    }
+
+    public int getBestMove() {
+        return this.bestMove;
+    }
+
+    public int getScore() {
+        return this.bestScore;
+    }
+
+    public int getCompletedDepth() {
+        return this.completedDepth;
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    public int[] getPrincipalVariation() {
+        return this.principalVariation;
+    }
+
+    public PawnHashTable getPawnTable() {
+        return this.pawnTable;
+    }
+
+    // usage: Search <depth>
+    // searches a fixed suite to the same depth without and with move ordering and reports the nodes each needed
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String[] suite = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq -",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ -",
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - -",
+                "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N2N2/PP2BPPP/R1BQ1RK1 w - -",
+                "8/pp3k2/2p1pp2/3p4/3P1P2/2P1P3/PP4KP/8 w - -"
+        };
+
+        long totalUnordered = 0;
+        long totalOrdered = 0;
+        for (String fen : suite) {
+            long[] nodes = new long[2];
+            double pawnHitRate = 0;
+            for (int i = 0; i < 2; i++) {
+                Search search = new Search(ChessMatch.fromFen(fen), new TranspositionTable(16));
+                search.setMaxDepth(depth);
+                search.setOrdering(i == 1);
+                search.search();
+                nodes[i] = search.getNodes();
+                pawnHitRate = search.getPawnTable().getHitRate();
+            }
+            totalUnordered += nodes[0];
+            totalOrdered += nodes[1];
+            System.out.printf("%-75s unordered %10d  ordered %10d  %5.1f%%  pawn hits %5.1f%%%n",
+                    fen, nodes[0], nodes[1], 100.0 * nodes[1] / nodes[0], 100 * pawnHitRate);
+        }
+        System.out.printf("%-75s unordered %10d  ordered %10d  %5.1f%%%n", "total", totalUnordered, totalOrdered, 100.0 * totalOrdered / totalUnordered);
+    }
+}
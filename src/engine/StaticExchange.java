@@ -0,0 +1,95 @@
+package engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.Color;
+import chess.Move;
+import chess.PieceType;
+
+// Static exchange evaluation: the material a move wins or loses once both sides have recaptured on its target square
+// for as long as it pays, each time with their least valuable attacker. Sliders lined up behind a capturer join in as
+// the pieces in front of them leave. Pins and checks are not looked at, so the result is an estimate.
+public final class StaticExchange {
+
+    // indexed by PieceType ordinal, the king is worth more than any exchange can win
+    private static final int[] VALUES = {
+            Evaluation.PAWN, Evaluation.KNIGHT, Evaluation.BISHOP, Evaluation.ROOK, Evaluation.QUEEN, 20_000
+    };
+
+    // values() hands out a fresh copy each time, leastValuable runs once per capture in the exchange
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    // length of the buffer evaluate works in, one entry per capture; a board has no more pieces than this
+    public static final int MAX_EXCHANGE = 32;
+
+    private StaticExchange() {
+    }
+
+    public static int value(PieceType type) {
+        return VALUES[type.ordinal()];
+    }
+
+    // material balance of the exchange started by the move, in centipawns for the player making it; gain is a
+    // buffer of MAX_EXCHANGE entries owned by the caller, so the search does not allocate on every capture
+    public static int evaluate(ChessBoard board, int move, int[] gain) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Color side = board.piece(from).getColor();
+        gain[0] = 0;
+
+        long occupancy = board.getOccupancy() ^ Bitboards.bit(from);
+        int next = value(board.piece(from).getType());
+        if (Move.flags(move) == Move.EN_PASSANT) {
+            gain[0] = Evaluation.PAWN;
+            occupancy ^= Bitboards.bit(to + (side == Color.WHITE ? 8 : -8));
+        } else if (Move.isCapture(move)) {
+            gain[0] = value(board.piece(to).getType());
+        }
+        if (Move.isPromotion(move)) {
+            next = value(Move.promotionType(move));
+            gain[0] += next - Evaluation.PAWN;
+        }
+
+        long attackers = board.attackersTo(to, occupancy) & occupancy;
+        int depth = 0;
+        while (true) {
+            side = side.opponent();
+            long own = attackers & board.getOccupancy(side);
+            if (own == 0) {
+                break;
+            }
+
+            PieceType type = leastValuable(board, own, side);
+            // the king may only take last, while nothing defends the square
+            if (type == PieceType.KING && (attackers & board.getOccupancy(side.opponent())) != 0) {
+                break;
+            }
+
+            depth++;
+            gain[depth] = next - gain[depth - 1];
+            next = value(type);
+            occupancy ^= Long.lowestOneBit(board.getBitboard(type, side) & own);
+            attackers = board.attackersTo(to, occupancy) & occupancy;
+        }
+
+        // walk back, each side may stop the exchange when going on would lose material
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    public static boolean isAtLeast(ChessBoard board, int move, int threshold, int[] gain) {
+        return evaluate(board, move, gain) >= threshold;
+    }
+
+    private static PieceType leastValuable(ChessBoard board, long attackers, Color color) {
+        for (PieceType type : PIECE_TYPES) {
+            if ((board.getBitboard(type, color) & attackers) != 0) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
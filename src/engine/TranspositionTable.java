@@ -0,0 +1,144 @@
+package engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+// Hash table of search results kept off the Java heap, so a table of several gigabytes costs the garbage collector
+// nothing, and shared by all search threads without locks. An entry is 16 bytes, the key XORed with the data followed
+// by the data. A probe recomputes the key from both words, so an entry torn by two threads writing at once reads as a
+// miss instead of as another position's result. Entries are grouped in buckets of four, one cache line; a new result
+// replaces the entry of the same position, or else the one with the least depth, older searches counting as less deep.
+public class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+
+    // a direct buffer holds at most 2 GB, larger tables are split in chunks of 1 GB
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    // an entry one search older weighs like one this many plies shallower
+    private static final int AGE_WEIGHT = 8;
+
+    // data layout: move in bits 0-15, score in bits 16-47, depth in bits 48-55, bound in bits 56-57, age in bits 58-63
+    private final ByteBuffer[] chunks;
+    private final long bucketMask;
+
+    private int age;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    public TranspositionTable(int megabytes) {
+        long buckets = Long.highestOneBit(Math.max(BUCKET_BYTES, (long) megabytes << 20) / BUCKET_BYTES);
+        long bytes = buckets * BUCKET_BYTES;
+        this.bucketMask = buckets - 1;
+        this.chunks = new ByteBuffer[(int) ((bytes + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < this.chunks.length; i++) {
+            int size = (int) Math.min(bytes - ((long) i << CHUNK_SHIFT), 1L << CHUNK_SHIFT);
+            this.chunks[i] = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // the data stored for the key, or 0 when there is none
+    public long probe(long key) {
+        this.probes.increment();
+        long bucket = (key & this.bucketMask) * BUCKET_BYTES;
+        ByteBuffer chunk = this.chunks[(int) (bucket >>> CHUNK_SHIFT)];
+        int offset = (int) (bucket & CHUNK_MASK);
+        for (int i = 0; i < BUCKET_ENTRIES; i++, offset += ENTRY_BYTES) {
+            long data = chunk.getLong(offset + 8);
+            if (data != 0 && (chunk.getLong(offset) ^ data) == key) {
+                this.hits.increment();
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        long bucket = (key & this.bucketMask) * BUCKET_BYTES;
+        ByteBuffer chunk = this.chunks[(int) (bucket >>> CHUNK_SHIFT)];
+        int offset = (int) (bucket & CHUNK_MASK);
+
+        int target = offset;
+        int lowest = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i++, offset += ENTRY_BYTES) {
+            long data = chunk.getLong(offset + 8);
+            if (data == 0 || (chunk.getLong(offset) ^ data) == key) {
+                target = offset;
+                break;
+            }
+            int worth = depth(data) - AGE_WEIGHT * ((this.age - age(data)) & 0x3F);
+            if (worth < lowest) {
+                lowest = worth;
+                target = offset;
+            }
+        }
+
+        long data = (move & 0xFFFFL) | (score & 0xFFFFFFFFL) << 16 | (long) depth << 48 | (long) bound << 56
+                | (long) this.age << 58;
+        chunk.putLong(target, key ^ data);
+        chunk.putLong(target + 8, data);
+    }
+
+    // called once before each search from the root, so entries of earlier searches are the first to be replaced
+    public void newSearch() {
+        this.age = (this.age + 1) & 0x3F;
+    }
+
+    public void clear() {
+        for (ByteBuffer chunk : this.chunks) {
+            for (int offset = 0; offset < chunk.capacity(); offset += 8) {
+                chunk.putLong(offset, 0);
+            }
+        }
+        this.age = 0;
+        this.probes.reset();
+        this.hits.reset();
+    }
+
+    public long getProbes() {
+        return this.probes.sum();
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    // share of probes that found their position, between 0 and 1
+    public double getHitRate() {
+        long probes = this.probes.sum();
+        return probes == 0 ? 0 : (double) this.hits.sum() / probes;
+    }
+
+    public long getSizeInBytes() {
+        return (this.bucketMask + 1) * BUCKET_BYTES;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (int) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 48) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 56) & 0x3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 58);
+    }
+}
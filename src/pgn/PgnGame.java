@@ -0,0 +1,114 @@
+package pgn;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// One game as read from a PGN file: the tag pairs, the SAN moves of the main line and, once resolved against a
+// position, the moves in Move encoding. Comments, variations and annotations are left out by the reader.
+public class PgnGame {
+
+    private final long offset;
+    private final Map<String, String> tags;
+    // SAN tokens of the main line, ASCII, each followed by one space
+    private final byte[] movetext;
+    private final int sanCount;
+    private final String result;
+
+    private int[] moves;
+    private int plyCount;
+    private String error;
+
+    PgnGame(long offset, Map<String, String> tags, byte[] movetext, int sanCount, String result) {
+        this.offset = offset;
+        this.tags = tags;
+        this.movetext = movetext;
+        this.sanCount = sanCount;
+        this.result = result;
+    }
+
+    // replays the game from its starting position, FEN tag or standard, on the given match and leaves the match on the
+    // last legal position reached; returns false when a move is illegal or the starting FEN is invalid. Any failure is
+    // recorded as this game's error instead of thrown, so one broken game never ends a stream of them; after an
+    // unexpected exception the match is left as it was and must be loaded again before use.
+    public boolean resolve(ChessMatch chessMatch, MoveList scratch) {
+        this.moves = new int[this.sanCount];
+        this.plyCount = 0;
+        this.error = null;
+
+        String fen = this.tags.get("FEN");
+        try {
+            chessMatch.load(fen != null ? fen : ChessMatch.STARTING_FEN);
+        } catch (RuntimeException e) {
+            this.error = e.getMessage() != null ? e.getMessage() : "Invalid FEN: " + fen;
+            return false;
+        }
+
+        int start = 0;
+        for (int i = 0; i < this.movetext.length; i++) {
+            if (this.movetext[i] != ' ') {
+                continue;
+            }
+            try {
+                int move = San.parse(chessMatch, this.movetext, start, i - start, scratch);
+                if (move == Move.NONE) {
+                    this.error = "Illegal move " + new String(this.movetext, start, i - start) + " at ply " + (this.plyCount + 1);
+                    return false;
+                }
+                chessMatch.makeMove(move);
+                this.moves[this.plyCount++] = move;
+            } catch (RuntimeException e) {
+                this.error = "Error at ply " + (this.plyCount + 1) + ": " + e;
+                return false;
+            }
+            start = i + 1;
+        }
+        return true;
+    }
+
+    // byte offset of the game in its file
+    public long getOffset() {
+        return this.offset;
+    }
+
+    public String getTag(String name) {
+        return this.tags.get(name);
+    }
+
+    public Map<String, String> getTags() {
+        return this.tags;
+    }
+
+    public int getSanCount() {
+        return this.sanCount;
+    }
+
+    // result token of the movetext, "1-0", "0-1", "1/2-1/2" or "*"
+    public String getResult() {
+        return this.result;
+    }
+
+    // the resolved moves, or null before resolve()
+    public int[] getMoves() {
+        return this.moves == null ? null : Arrays.copyOf(this.moves, this.plyCount);
+    }
+
+    public int getPlyCount() {
+        return this.plyCount;
+    }
+
+    public boolean isResolved() {
+        return this.moves != null;
+    }
+
+    public boolean isLegal() {
+        return this.moves != null && this.error == null;
+    }
+
+    public String getError() {
+        return this.error;
+    }
+}
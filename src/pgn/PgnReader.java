@@ -0,0 +1,335 @@
+package pgn;
+
+import chess.ChessMatch;
+import chess.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Streaming PGN reader. The file is memory-mapped a window at a time and scanned byte by byte, so memory stays
+// bounded whatever the file size, and games are read one at a time as the iterator asks for them. By default each game
+// is also replayed on a reused ChessMatch, which resolves its SAN moves and checks that they are legal.
+public class PgnReader implements Iterator<PgnGame>, Closeable {
+
+    private static final int WINDOW = 1 << 28;
+
+    private final FileChannel channel;
+    private final long size;
+    private ByteBuffer buffer;
+    private long bufferStart;
+    private int pushedBack = -1;
+
+    private boolean resolveMoves = true;
+    private final ChessMatch chessMatch = new ChessMatch();
+    private final MoveList scratch = new MoveList();
+
+    private byte[] token = new byte[64];
+    private int tokenLength;
+    private byte[] movetext = new byte[1024];
+    private int movetextLength;
+
+    private PgnGame next;
+
+    public PgnReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = this.channel.size();
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW, this.size));
+    }
+
+    // reads games from memory, e.g. a slice of a larger file
+    public PgnReader(ByteBuffer buffer) {
+        this.channel = null;
+        this.size = buffer.remaining();
+        this.buffer = buffer.slice();
+    }
+
+    public static Stream<PgnGame> stream(Path path) throws IOException {
+        PgnReader reader = new PgnReader(path);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    // without resolving, games only hold their tags and SAN text, for callers that replay them elsewhere
+    public void setResolveMoves(boolean resolveMoves) {
+        this.resolveMoves = resolveMoves;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null) {
+            this.next = this.readGame();
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public PgnGame next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        PgnGame game = this.next;
+        this.next = null;
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+        }
+    }
+
+    private PgnGame readGame() {
+        Map<String, String> tags = new LinkedHashMap<>();
+        this.movetextLength = 0;
+        int sanCount = 0;
+        long offset = -1;
+        boolean inMovetext = false;
+
+        while (true) {
+            int c = this.skipWhitespace();
+            if (c < 0) {
+                return offset < 0 ? null : this.finishGame(offset, tags, sanCount, "*");
+            }
+            if (offset < 0) {
+                offset = this.position() - 1;
+            }
+
+            if (c == '[') {
+                if (inMovetext) {
+                    // the last game had no result, this tag starts the next one
+                    this.pushedBack = c;
+                    return this.finishGame(offset, tags, sanCount, "*");
+                }
+                this.readTag(tags);
+            } else if (c == '{') {
+                this.skipUntil('}');
+            } else if (c == ';' || c == '%') {
+                this.skipUntil('\n');
+            } else if (c == '(') {
+                this.skipVariation();
+            } else if (c == '$') {
+                this.readToken(c);
+            } else {
+                inMovetext = true;
+                this.readToken(c);
+                String result = this.result();
+                if (result != null) {
+                    return this.finishGame(offset, tags, sanCount, result);
+                }
+
+                // move numbers may stick to the move, as in "1.e4" or "12...Nf6"
+                int start = 0;
+                while (start < this.tokenLength && this.token[start] >= '0' && this.token[start] <= '9') {
+                    start++;
+                }
+                if (start < this.tokenLength && this.token[start] != '.') {
+                    start = 0;
+                }
+                while (start < this.tokenLength && this.token[start] == '.') {
+                    start++;
+                }
+                if (start < this.tokenLength) {
+                    this.appendSan(start);
+                    sanCount++;
+                }
+            }
+        }
+    }
+
+    private PgnGame finishGame(long offset, Map<String, String> tags, int sanCount, String result) {
+        PgnGame game = new PgnGame(offset, tags, Arrays.copyOf(this.movetext, this.movetextLength), sanCount, result);
+        if (this.resolveMoves) {
+            game.resolve(this.chessMatch, this.scratch);
+        }
+        return game;
+    }
+
+    private String result() {
+        if (this.tokenLength == 1 && this.token[0] == '*') {
+            return "*";
+        }
+        if (this.tokenLength == 3 && this.token[1] == '-') {
+            if (this.token[0] == '1' && this.token[2] == '0') {
+                return "1-0";
+            }
+            if (this.token[0] == '0' && this.token[2] == '1') {
+                return "0-1";
+            }
+        }
+        if (this.tokenLength == 7 && this.token[0] == '1' && this.token[1] == '/' && this.token[3] == '-') {
+            return "1/2-1/2";
+        }
+        return null;
+    }
+
+    private void appendSan(int start) {
+        int length = this.tokenLength - start;
+        if (this.movetextLength + length + 1 > this.movetext.length) {
+            this.movetext = Arrays.copyOf(this.movetext, Math.max(this.movetext.length * 2, this.movetextLength + length + 1));
+        }
+        System.arraycopy(this.token, start, this.movetext, this.movetextLength, length);
+        this.movetextLength += length;
+        this.movetext[this.movetextLength++] = ' ';
+    }
+
+    // [Name "value"], with backslash escapes inside the value
+    private void readTag(Map<String, String> tags) {
+        int c = this.skipWhitespace();
+        this.tokenLength = 0;
+        while (c >= 0 && c != '"' && c != ']' && !isWhitespace(c)) {
+            this.appendToken(c);
+            c = this.read();
+        }
+        String name = new String(this.token, 0, this.tokenLength, StandardCharsets.US_ASCII);
+
+        while (c >= 0 && c != '"' && c != ']') {
+            c = this.read();
+        }
+        if (c == '"') {
+            this.tokenLength = 0;
+            c = this.read();
+            while (c >= 0 && c != '"') {
+                if (c == '\\') {
+                    c = this.read();
+                }
+                this.appendToken(c);
+                c = this.read();
+            }
+            tags.put(name, new String(this.token, 0, this.tokenLength, StandardCharsets.UTF_8));
+            c = this.read();
+        }
+        while (c >= 0 && c != ']') {
+            c = this.read();
+        }
+    }
+
+    // a run of characters up to whitespace or the next delimiter, which is pushed back
+    private void readToken(int first) {
+        this.tokenLength = 0;
+        int c = first;
+        while (c >= 0 && !isWhitespace(c)) {
+            if (this.tokenLength > 0 && (c == '{' || c == '(' || c == ')' || c == '[' || c == ';' || c == '$')) {
+                this.pushedBack = c;
+                return;
+            }
+            this.appendToken(c);
+            c = this.read();
+        }
+    }
+
+    private void appendToken(int c) {
+        if (this.tokenLength == this.token.length) {
+            this.token = Arrays.copyOf(this.token, this.token.length * 2);
+        }
+        this.token[this.tokenLength++] = (byte) c;
+    }
+
+    // variations nest and may hold comments with parentheses of their own
+    private void skipVariation() {
+        int depth = 1;
+        while (depth > 0) {
+            int c = this.read();
+            if (c < 0) {
+                return;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                this.skipUntil('}');
+            } else if (c == ';') {
+                this.skipUntil('\n');
+            }
+        }
+    }
+
+    private void skipUntil(int end) {
+        int c;
+        do {
+            c = this.read();
+        } while (c >= 0 && c != end);
+    }
+
+    private int skipWhitespace() {
+        int c;
+        do {
+            c = this.read();
+        } while (c >= 0 && (isWhitespace(c) || c == 0xEF || c == 0xBB || c == 0xBF));
+        return c;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private long position() {
+        return this.bufferStart + this.buffer.position() - (this.pushedBack >= 0 ? 1 : 0);
+    }
+
+    private int read() {
+        if (this.pushedBack >= 0) {
+            int c = this.pushedBack;
+            this.pushedBack = -1;
+            return c;
+        }
+        if (!this.buffer.hasRemaining()) {
+            long start = this.bufferStart + this.buffer.limit();
+            if (this.channel == null || start >= this.size) {
+                return -1;
+            }
+            try {
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, this.size - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.bufferStart = start;
+        }
+        return this.buffer.get() & 0xFF;
+    }
+
+    // usage: PgnReader <file.pgn>
+    // replays every game of the file and reports how many were legal and how fast they were read
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        long games = 0;
+        long illegal = 0;
+        long plies = 0;
+        try (PgnReader reader = new PgnReader(Paths.get(args[0]))) {
+            while (reader.hasNext()) {
+                PgnGame game = reader.next();
+                games++;
+                plies += game.getPlyCount();
+                if (!game.isLegal()) {
+                    illegal++;
+                    System.out.println("game " + games + " at byte " + game.getOffset() + ": " + game.getError());
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("games %d  illegal %d  plies %d  time %.3f s  games/min %.0f%n", games, illegal, plies, seconds, games / seconds * 60);
+    }
+}
@@ -0,0 +1,134 @@
+package pgn;
+
+import chess.Bitboards;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.PieceType;
+
+// Standard algebraic notation, resolved against the legal moves of a position: "e4", "Nbd7", "exd5", "R1e2",
+// "e8=Q+", "O-O". Check and annotation marks are ignored, and a move matches only when exactly one legal move fits.
+public final class San {
+
+    // piece letters in PieceType order; values() would clone the enum array for every piece move parsed
+    private static final String PIECE_LETTERS = "PNBRQK";
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private San() {
+    }
+
+    public static int parse(ChessMatch chessMatch, String san) {
+        byte[] text = new byte[san.length()];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (byte) san.charAt(i);
+        }
+        return parse(chessMatch, text, 0, text.length, new MoveList());
+    }
+
+    // the legal move named by the ASCII text, or Move.NONE when it names none or several; moves is scratch space
+    public static int parse(ChessMatch chessMatch, byte[] text, int offset, int length, MoveList moves) {
+        int start = offset;
+        int end = offset + length;
+        while (end > start && isAnnotation(text[end - 1])) {
+            end--;
+        }
+        if (end == start) {
+            return Move.NONE;
+        }
+
+        MoveGenerator.generateLegalMoves(chessMatch, moves);
+        if (text[start] == 'O' || text[start] == '0') {
+            int flags = end - start == 3 ? Move.KING_CASTLE : end - start == 5 ? Move.QUEEN_CASTLE : -1;
+            for (int i = 0; i < moves.size(); i++) {
+                if (Move.flags(moves.get(i)) == flags) {
+                    return moves.get(i);
+                }
+            }
+            return Move.NONE;
+        }
+
+        PieceType type = PieceType.PAWN;
+        int index = PIECE_LETTERS.indexOf(text[start]);
+        if (index >= 0) {
+            type = PIECE_TYPES[index];
+            start++;
+        }
+
+        PieceType promotion = null;
+        if (end - start >= 3 && text[end - 2] == '=') {
+            promotion = promotionType(text[end - 1]);
+            end -= 2;
+        } else if (end - start >= 3 && type == PieceType.PAWN && promotionType(text[end - 1]) != null) {
+            promotion = promotionType(text[end - 1]);
+            end--;
+        }
+        if (end - start < 2 || !isFile(text[end - 2]) || !isRank(text[end - 1])) {
+            return Move.NONE;
+        }
+        int to = Bitboards.square('8' - text[end - 1], text[end - 2] - 'a');
+        end -= 2;
+
+        // what is left names the source file and/or rank, or is a capture mark
+        int fromColumn = -1;
+        int fromRow = -1;
+        for (int i = start; i < end; i++) {
+            byte c = text[i];
+            if (isFile(c)) {
+                fromColumn = c - 'a';
+            } else if (isRank(c)) {
+                fromRow = '8' - c;
+            } else if (c != 'x' && c != '-' && c != ':') {
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = Move.from(move);
+            if (Move.to(move) != to || Move.promotionType(move) != promotion
+                    || chessMatch.getBoard().piece(from).getType() != type
+                    || fromColumn >= 0 && Bitboards.column(from) != fromColumn
+                    || fromRow >= 0 && Bitboards.row(from) != fromRow) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                return Move.NONE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    private static boolean isAnnotation(byte c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+
+    private static boolean isFile(byte c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(byte c) {
+        return c >= '1' && c <= '8';
+    }
+
+    private static PieceType promotionType(byte c) {
+        switch (c) {
+            case 'N':
+            case 'n':
+                return PieceType.KNIGHT;
+            case 'B':
+            case 'b':
+                return PieceType.BISHOP;
+            case 'R':
+            case 'r':
+                return PieceType.ROOK;
+            case 'Q':
+            case 'q':
+                return PieceType.QUEEN;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package pgn;
+
+// How a replayed game ended, as far as the moves show. Resignations, time forfeits and agreed draws leave no trace on
+// the board and all count as OTHER.
+public enum Termination {
+    CHECKMATE,
+    STALEMATE,
+    FIFTY_MOVE_RULE,
+    ILLEGAL_MOVE,
+    UNTERMINATED,
+    OTHER;
+}
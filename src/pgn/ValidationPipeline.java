@@ -0,0 +1,235 @@
+package pgn;
+
+import chess.ChessMatch;
+import chess.MoveList;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Validates a PGN corpus on several threads. A reader thread splits the file into batches of games without replaying
+// them, worker threads replay each batch on their own reused ChessMatch, and the calling thread hands the results to
+// the sink in file order. At most maxBatchesInFlight batches exist between reading and writing at any time, so the
+// reader waits for the writer and memory stays bounded however large the corpus is.
+public class ValidationPipeline {
+
+    private static final Batch END = new Batch(-1, 0, null);
+
+    private final int workers;
+    private final int batchSize;
+    private final int maxBatchesInFlight;
+
+    public ValidationPipeline(int workers, int batchSize, int maxBatchesInFlight) {
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesInFlight = Math.max(this.workers, maxBatchesInFlight);
+    }
+
+    // returns the number of games validated
+    public long run(Path input, Consumer<ValidationResult> sink) throws IOException, InterruptedException {
+        BlockingQueue<Batch> games = new ArrayBlockingQueue<>(this.maxBatchesInFlight);
+        BlockingQueue<Batch> results = new LinkedBlockingQueue<>();
+        Semaphore inFlight = new Semaphore(this.maxBatchesInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        PgnReader reader = new PgnReader(input);
+        reader.setResolveMoves(false);
+        Thread readerThread = new Thread(() -> {
+            try {
+                long sequence = 0;
+                long gameNumber = 1;
+                while (reader.hasNext()) {
+                    PgnGame[] batch = new PgnGame[this.batchSize];
+                    int size = 0;
+                    while (size < batch.length && reader.hasNext()) {
+                        batch[size++] = reader.next();
+                    }
+                    inFlight.acquire();
+                    games.put(new Batch(sequence++, gameNumber, size == batch.length ? batch : Arrays.copyOf(batch, size)));
+                    gameNumber += size;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+            try {
+                for (int i = 0; i < this.workers; i++) {
+                    games.put(END);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "pgn-reader");
+
+        Thread[] workerThreads = new Thread[this.workers];
+        for (int i = 0; i < this.workers; i++) {
+            workerThreads[i] = new Thread(() -> {
+                ChessMatch chessMatch = new ChessMatch();
+                MoveList scratch = new MoveList();
+                Batch batch = null;
+                try {
+                    while ((batch = games.take()) != END) {
+                        ValidationResult[] validated = new ValidationResult[batch.games.length];
+                        for (int j = 0; j < validated.length; j++) {
+                            validated[j] = ValidationResult.validate(batch.firstGame + j, batch.games[j], chessMatch, scratch);
+                            // a game that failed with an exception may have left the match inconsistent
+                            if (validated[j].getFinalFen() == null) {
+                                chessMatch = new ChessMatch();
+                            }
+                        }
+                        batch.games = null;
+                        batch.results = validated;
+                        results.put(batch);
+                        batch = null;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    // a batch that never reaches the writer would hold its permit forever and stall the reader
+                    if (batch != null && batch != END) {
+                        inFlight.release();
+                    }
+                    results.offer(END);
+                }
+            }, "pgn-worker-" + (i + 1));
+        }
+
+        readerThread.setDaemon(true);
+        readerThread.start();
+        for (Thread worker : workerThreads) {
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        // batches finish out of order, the ones ahead of the next expected batch wait here
+        Map<Long, Batch> pending = new HashMap<>();
+        long next = 0;
+        long count = 0;
+        int finishedWorkers = 0;
+        try {
+            while (finishedWorkers < this.workers) {
+                Batch batch = results.take();
+                if (batch == END) {
+                    finishedWorkers++;
+                    // a failed worker lost its batch, the results after it can never be written in order
+                    if (failure.get() != null) {
+                        break;
+                    }
+                    continue;
+                }
+                pending.put(batch.sequence, batch);
+                while ((batch = pending.remove(next)) != null) {
+                    for (ValidationResult result : batch.results) {
+                        sink.accept(result);
+                    }
+                    count += batch.results.length;
+                    next++;
+                    inFlight.release();
+                }
+                if (failure.get() != null) {
+                    break;
+                }
+            }
+        } finally {
+            readerThread.interrupt();
+            for (Thread worker : workerThreads) {
+                worker.interrupt();
+            }
+            reader.close();
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) error).getCause();
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        if (error != null) {
+            throw (RuntimeException) error;
+        }
+        return count;
+    }
+
+    private static class Batch {
+
+        private final long sequence;
+        private final long firstGame;
+        private PgnGame[] games;
+        private ValidationResult[] results;
+
+        private Batch(long sequence, long firstGame, PgnGame[] games) {
+            this.sequence = sequence;
+            this.firstGame = firstGame;
+            this.games = games;
+        }
+    }
+
+    // usage: ValidationPipeline <file.pgn> [threads [results.tsv]]
+    // with a thread count, validates the file once and writes one line per game to the results file if given;
+    // without one, validates it with 1, 2, 4, ... up to all available threads and reports the speedup over one thread
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path input = Paths.get(args[0]);
+        if (args.length > 1) {
+            int threads = Integer.parseInt(args[1]);
+            long start = System.nanoTime();
+            long games;
+            if (args.length > 2) {
+                try (Writer writer = new BufferedWriter(Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8))) {
+                    games = new ValidationPipeline(threads, 256, 4 * threads).run(input, result -> {
+                        try {
+                            writer.write(result.toString());
+                            writer.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            } else {
+                games = new ValidationPipeline(threads, 256, 4 * threads).run(input, result -> { });
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("threads %3d  games %d  time %.3f s  games/min %.0f%n", threads, games, seconds, games / seconds * 60);
+            return;
+        }
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, processors)) {
+            long[] illegal = new long[1];
+            long start = System.nanoTime();
+            long games = new ValidationPipeline(threads, 256, 4 * threads).run(input, result -> {
+                if (!result.isLegal()) {
+                    illegal[0]++;
+                }
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double rate = games / seconds * 60;
+            if (threads == 1) {
+                baseline = rate;
+            }
+            System.out.printf("threads %3d  games %d  illegal %d  time %.3f s  games/min %.0f  speedup %.2f%n",
+                    threads, games, illegal[0], seconds, rate, rate / baseline);
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package pgn;
+
+import chess.ChessMatch;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+// Outcome of replaying one game: whether every move was legal, the position it ended on and how it ended. For an
+// illegal game the final position is the last legal one, before the offending move.
+public class ValidationResult {
+
+    private final long gameNumber;
+    private final long offset;
+    private final boolean legal;
+    private final String error;
+    private final String finalFen;
+    private final int plyCount;
+    private final String result;
+    private final Termination termination;
+
+    public ValidationResult(long gameNumber, long offset, boolean legal, String error, String finalFen, int plyCount,
+                            String result, Termination termination) {
+        this.gameNumber = gameNumber;
+        this.offset = offset;
+        this.legal = legal;
+        this.error = error;
+        this.finalFen = finalFen;
+        this.plyCount = plyCount;
+        this.result = result;
+        this.termination = termination;
+    }
+
+    // replays the game on the match, which is reused from game to game, and describes the outcome. An unexpected
+    // exception marks the game illegal with the exception as its error, so one bad game cannot stop a worker; the final
+    // FEN is then null and the match may be left inconsistent, callers replace it before the next game.
+    public static ValidationResult validate(long gameNumber, PgnGame game, ChessMatch chessMatch, MoveList scratch) {
+        try {
+            boolean legal = game.resolve(chessMatch, scratch);
+            Termination termination;
+            if (!legal) {
+                termination = Termination.ILLEGAL_MOVE;
+            } else if (MoveGenerator.generateLegalMoves(chessMatch, scratch) == 0) {
+                termination = chessMatch.testCheck() ? Termination.CHECKMATE : Termination.STALEMATE;
+            } else if (chessMatch.getHalfmoveClock() >= 100) {
+                termination = Termination.FIFTY_MOVE_RULE;
+            } else if (game.getResult().equals("*")) {
+                termination = Termination.UNTERMINATED;
+            } else {
+                termination = Termination.OTHER;
+            }
+            return new ValidationResult(gameNumber, game.getOffset(), legal, game.getError(), chessMatch.toFen(),
+                    game.getPlyCount(), game.getResult(), termination);
+        } catch (RuntimeException e) {
+            return new ValidationResult(gameNumber, game.getOffset(), false, "Error: " + e, null, 0, game.getResult(),
+                    Termination.ILLEGAL_MOVE);
+        }
+    }
+
+    // numbered from 1 in file order
+    public long getGameNumber() {
+        return this.gameNumber;
+    }
+
+    public long getOffset() {
+        return this.offset;
+    }
+
+    public boolean isLegal() {
+        return this.legal;
+    }
+
+    public String getError() {
+        return this.error;
+    }
+
+    // null when the replay failed with an exception
+    public String getFinalFen() {
+        return this.finalFen;
+    }
+
+    public int getPlyCount() {
+        return this.plyCount;
+    }
+
+    public String getResult() {
+        return this.result;
+    }
+
+    public Termination getTermination() {
+        return this.termination;
+    }
+
+    // one tab separated line: number, legal, plies, result, termination, final FEN and error
+    @Override
+    public String toString() {
+        return this.gameNumber + "\t" + (this.legal ? "legal" : "illegal") + "\t" + this.plyCount + "\t" + this.result
+                + "\t" + this.termination + "\t" + (this.finalFen != null ? this.finalFen : "-") + (this.error != null ? "\t" + this.error : "");
+    }
+}